@@ -0,0 +1,110 @@
+package org.drools.retebuilder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.drools.core.common.InternalWorkingMemory;
+
+/**
+ * The work of a session running out of its firing thread: blocking invokers, blocking and parallel consequences.
+ * It is owned by the {@link CanonicalAgenda} of the session, whose fireAllRules waits until all of it has been
+ * completed and propagated and then rethrows its first failure.
+ */
+public final class BlockingWork {
+
+    private int inFlight;
+    private int completedSinceLastFiring;
+    private Throwable failure;
+
+    BlockingWork() { }
+
+    /**
+     * Creates an executor with a virtual thread per task when the JVM provides them, otherwise a pool of daemon
+     * threads growing on demand.
+     */
+    public static ExecutorService newDefaultExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod( "newVirtualThreadPerTaskExecutor" ).invoke( null );
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threadsCounter = new AtomicInteger();
+            return Executors.newCachedThreadPool( r -> {
+                Thread thread = new Thread( r, "kie-blocking-" + threadsCounter.incrementAndGet() );
+                thread.setDaemon( true );
+                return thread;
+            } );
+        }
+    }
+
+    public static BlockingWork of(Object session) {
+        return ((CanonicalAgenda) ((InternalWorkingMemory) session).getAgenda()).getBlockingWork();
+    }
+
+    /**
+     * Runs the given work on the executor on behalf of the given session. The dependents of the returned future
+     * are completed before the work stops being in flight.
+     */
+    public static <T> CompletableFuture<T> submit(Object session, Executor executor, Supplier<T> work) {
+        BlockingWork pending = of( session );
+        pending.started();
+        CompletableFuture<T> result = new CompletableFuture<T>();
+        executor.execute( () -> {
+            try {
+                result.complete( work.get() );
+            } catch (Throwable t) {
+                pending.failed( t );
+                result.completeExceptionally( t );
+            } finally {
+                pending.completed();
+            }
+        } );
+        return result;
+    }
+
+    public static int getInFlightCount(Object session) {
+        return of( session ).getInFlightCount();
+    }
+
+    private synchronized void started() {
+        inFlight++;
+    }
+
+    private synchronized void completed() {
+        inFlight--;
+        completedSinceLastFiring++;
+        notifyAll();
+    }
+
+    /**
+     * Records a failure of the work of the session, rethrown by the fireAllRules running or following it.
+     */
+    public synchronized void failed(Throwable t) {
+        if (failure == null) {
+            failure = t;
+        }
+    }
+
+    public synchronized int getInFlightCount() {
+        return inFlight;
+    }
+
+    synchronized boolean awaitCompletions() throws InterruptedException {
+        while (inFlight > 0) {
+            wait();
+        }
+        boolean fireAgain = completedSinceLastFiring > 0;
+        completedSinceLastFiring = 0;
+        return fireAgain;
+    }
+
+    synchronized void rethrowFailure() {
+        if (failure != null) {
+            Throwable t = failure;
+            failure = null;
+            throw t instanceof RuntimeException ? (RuntimeException) t : new RuntimeException( t );
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package org.drools.retebuilder;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.drools.core.base.ClassObjectType;
+import org.drools.core.reteoo.AlphaNode;
+import org.drools.core.reteoo.EntryPointNode;
+import org.drools.core.reteoo.ObjectSource;
+import org.drools.core.reteoo.ObjectTypeNode;
+import org.drools.core.reteoo.Sink;
+import org.drools.core.rule.EntryPointId;
+import org.drools.retebuilder.constraints.AlphaBatch;
+import org.drools.retebuilder.constraints.LambdaConstraint;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.rule.EntryPoint;
+
+/**
+ * Inserts a large amount of facts into an entry point in two phases for each window of objects:
+ * first all the alpha constraints reachable from the entry point are evaluated in parallel on a fork-join pool,
+ * then the objects are inserted sequentially, reusing the precomputed outcomes of the alpha network.
+ * Since the inserts of the second phase don't fire any rule, all the surviving facts are only staged into
+ * the beta memories and segments and then evaluated together by the next fireAllRules.
+ */
+public class BulkLoader {
+
+    private static final int WINDOW_SIZE_PER_THREAD = 16 * 1024;
+
+    private final EntryPoint entryPoint;
+    private final AlphaBatch alphaBatch;
+    private final int parallelism;
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a loader evaluating the alpha network on a pool of the given parallelism,
+     * started by each load and shut down as soon as the load ends.
+     */
+    public BulkLoader(KieSession kSession, String dataSourceName, int parallelism) {
+        this(kSession, dataSourceName, parallelism, null);
+    }
+
+    /**
+     * Creates a loader evaluating the alpha network on the given pool, that remains owned by the caller.
+     */
+    public BulkLoader(KieSession kSession, String dataSourceName, ForkJoinPool pool) {
+        this(kSession, dataSourceName, pool.getParallelism(), pool);
+    }
+
+    private BulkLoader(KieSession kSession, String dataSourceName, int parallelism, ForkJoinPool pool) {
+        this.entryPoint = kSession.getEntryPoint(dataSourceName);
+        if (entryPoint == null) {
+            throw new RuntimeException("Unknown data source: " + dataSourceName);
+        }
+        CanonicalKieBase kieBase = (CanonicalKieBase) kSession.getKieBase();
+        EntryPointNode epn = kieBase.getRete().getEntryPointNode(new EntryPointId(dataSourceName));
+        this.alphaBatch = new AlphaBatch(collectAlphaConstraints(epn));
+        this.parallelism = parallelism;
+        this.pool = pool;
+    }
+
+    public int load(Iterable<?> objects) {
+        return load(objects.iterator());
+    }
+
+    public int load(Iterator<?> objects) {
+        if (parallelism <= 1 || alphaBatch.isEmpty()) {
+            int count = 0;
+            while (objects.hasNext()) {
+                entryPoint.insert(objects.next());
+                count++;
+            }
+            return count;
+        }
+
+        ForkJoinPool pool = this.pool != null ? this.pool : new ForkJoinPool(parallelism);
+        int windowSize = WINDOW_SIZE_PER_THREAD * parallelism;
+        List<Object> window = new ArrayList<Object>(windowSize);
+        int count = 0;
+        alphaBatch.activate();
+        try {
+            while (objects.hasNext()) {
+                window.add(objects.next());
+                if (window.size() == windowSize || !objects.hasNext()) {
+                    count += loadWindow(window, pool);
+                    window.clear();
+                }
+            }
+        } finally {
+            alphaBatch.deactivate();
+            if (pool != this.pool) {
+                pool.shutdown();
+            }
+        }
+        return count;
+    }
+
+    private int loadWindow(List<Object> window, ForkJoinPool pool) {
+        alphaBatch.evaluate(window, pool);
+        for (int i = 0; i < window.size(); i++) {
+            alphaBatch.moveTo(i);
+            entryPoint.insert(window.get(i));
+        }
+        alphaBatch.moveTo(-1);
+        return window.size();
+    }
+
+    private static Map<LambdaConstraint, Class<?>> collectAlphaConstraints(EntryPointNode epn) {
+        Map<LambdaConstraint, Class<?>> alphaConstraints = new LinkedHashMap<LambdaConstraint, Class<?>>();
+        if (epn != null) {
+            for (ObjectTypeNode otn : epn.getObjectTypeNodes().values()) {
+                if (otn.getObjectType() instanceof ClassObjectType) {
+                    collectAlphaConstraints(otn, ((ClassObjectType) otn.getObjectType()).getClassType(), alphaConstraints);
+                }
+            }
+        }
+        return alphaConstraints;
+    }
+
+    private static void collectAlphaConstraints(ObjectSource source, Class<?> type, Map<LambdaConstraint, Class<?>> alphaConstraints) {
+        for (Sink sink : source.getObjectSinkPropagator().getSinks()) {
+            if (sink instanceof AlphaNode) {
+                AlphaNode alpha = (AlphaNode) sink;
+                if (alpha.getConstraint() instanceof LambdaConstraint) {
+                    alphaConstraints.putIfAbsent((LambdaConstraint) alpha.getConstraint(), type);
+                }
+                collectAlphaConstraints(alpha, type, alphaConstraints);
+            }
+        }
+    }
+}
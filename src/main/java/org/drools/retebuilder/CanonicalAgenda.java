@@ -0,0 +1,94 @@
+package org.drools.retebuilder;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.drools.core.common.AgendaFactory;
+import org.drools.core.common.BaseNode;
+import org.drools.core.common.DefaultAgenda;
+import org.drools.core.common.InternalAgenda;
+import org.drools.core.impl.InternalKnowledgeBase;
+import org.drools.core.spi.AgendaFilter;
+
+/**
+ * The agenda of the sessions of a {@link CanonicalKieBase}. It owns the {@link BlockingWork} of its session, i.e. the
+ * blocking invocations and the blocking and parallel consequences running out of the firing thread: fireAllRules keeps
+ * firing the rules, waiting for that work, until none of it is in flight anymore and all its results and side effects
+ * have been propagated, and then rethrows the first failure of the work done meanwhile.
+ * It also keeps the state that the nodes of this module need for its session besides their drools memory.
+ */
+public class CanonicalAgenda extends DefaultAgenda {
+
+    private final BlockingWork blockingWork = new BlockingWork();
+    // the firings of the current call whose consequence has been skipped, as superseded by a later activation
+    private int supersededFirings;
+    // only accessed by the engine thread, while evaluating the network
+    private final Map<BaseNode, Object> nodeStates = new IdentityHashMap<BaseNode, Object>();
+
+    public CanonicalAgenda(InternalKnowledgeBase kBase, boolean initMain) {
+        super(kBase, initMain);
+    }
+
+    public BlockingWork getBlockingWork() {
+        return blockingWork;
+    }
+
+    /**
+     * The state of the given node for this session, created by the given factory when first needed.
+     */
+    @SuppressWarnings("unchecked")
+    public <S> S getNodeState(BaseNode node, Supplier<S> factory) {
+        Object state = nodeStates.get(node);
+        if (state == null) {
+            state = factory.get();
+            nodeStates.put(node, state);
+        }
+        return (S) state;
+    }
+
+    /**
+     * Records that the consequence of the firing activation has been skipped, since a later activation
+     * of the same rule coalesced with it is still pending: such a firing isn't counted as a fired rule.
+     */
+    public void supersededFiring() {
+        supersededFirings++;
+    }
+
+    /**
+     * The superseded firings are not counted, but they consume the fire limit of the underlying firing,
+     * which is then resumed to fire the remaining rules up to the limit.
+     */
+    @Override
+    public int fireAllRules(AgendaFilter agendaFilter, int fireLimit) {
+        int fired = 0;
+        try {
+            boolean superseded;
+            do {
+                supersededFirings = 0;
+                fired += super.fireAllRules(agendaFilter, fireLimit < 0 ? fireLimit : fireLimit - fired) - supersededFirings;
+                superseded = supersededFirings > 0;
+            } while ((fireLimit < 0 || fired < fireLimit) && ((fireLimit >= 0 && superseded) || blockingWork.awaitCompletions()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        blockingWork.rethrowFailure();
+        return fired;
+    }
+
+    public static class Factory implements AgendaFactory {
+
+        public static final Factory INSTANCE = new Factory();
+
+        @Override
+        public InternalAgenda createAgenda(InternalKnowledgeBase kBase, boolean initMain) {
+            return new CanonicalAgenda(kBase, initMain);
+        }
+
+        @Override
+        public InternalAgenda createAgenda(InternalKnowledgeBase kBase) {
+            return new CanonicalAgenda(kBase, true);
+        }
+    }
+}
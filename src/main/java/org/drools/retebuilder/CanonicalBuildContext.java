@@ -2,6 +2,7 @@ package org.drools.retebuilder;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Function;
 
 import org.drools.core.impl.InternalKnowledgeBase;
 import org.drools.core.reteoo.builder.BuildContext;
@@ -15,6 +16,7 @@ public class CanonicalBuildContext extends BuildContext {
 
     private int patternCounter = 0;
     private final Map<Variable, ArgumentMapper> boundVariables = new HashMap<Variable, ArgumentMapper>();
+    private final Map<Variable, Integer> tupleIndexes = new HashMap<Variable, Integer>();
 
     public CanonicalBuildContext(InternalKnowledgeBase kBase) {
         super(kBase);
@@ -28,15 +30,50 @@ public class CanonicalBuildContext extends BuildContext {
         for (int i = 0; i < vars.length; i++) {
             boundVariables.put(vars[i], new ArgumentExtractor(patternCounter, i));
         }
+        if (type == Type.PATTERN && !(pattern instanceof AccumulatePattern)) {
+            // the same position read by the argument extractors, counting the initial fact when there is one
+            tupleIndexes.put(pattern.getPatternVariable(), patternCounter);
+        }
         if (vars.length > 0) {
             patternCounter++;
         }
     }
 
+    /**
+     * Binds a variable to a value computed from other variables each time it is read, without occupying
+     * a position in the tuple.
+     */
+    public void addComputedVariable( Variable variable, Function<Object[], Object> function, Variable[] inputVariables ) {
+        ArgumentMapper[] inputMappers = new ArgumentMapper[inputVariables.length];
+        for (int i = 0; i < inputVariables.length; i++) {
+            inputMappers[i] = boundVariables.get(inputVariables[i]);
+            if (inputMappers[i] == null) {
+                throw new RuntimeException("Unknown Variable: " + inputVariables[i]);
+            }
+        }
+        boundVariables.put(variable, new ComputedArgument(function, inputMappers));
+    }
+
+    /**
+     * The index in the left tuple of the fact bound to the given variable by a joined pattern, or -1 if the variable
+     * isn't bound to a fact of its own.
+     */
+    public int getTupleIndex(Variable variable) {
+        Integer index = tupleIndexes.get(variable);
+        return index != null ? index : -1;
+    }
+
     public ArgumentMapper getVariableMapper(Variable variable) {
         return boundVariables.get(variable);
     }
 
+    /**
+     * True if the variable is bound to a value computed when read, so that it has no position in the tuple.
+     */
+    public boolean isComputedVariable(Variable variable) {
+        return boundVariables.get(variable) instanceof ComputedArgument;
+    }
+
     private boolean requiresInitialfact(Condition.Type type, Pattern pattern) {
         return pattern instanceof AccumulatePattern || type == Type.EXISTS || type == Type.NOT;
     }
@@ -55,4 +92,22 @@ public class CanonicalBuildContext extends BuildContext {
             return fact instanceof Object[] ? ((Object[])fact)[declarationPos] : fact;
         }
     }
+
+    private static class ComputedArgument implements ArgumentMapper {
+        private final Function<Object[], Object> function;
+        private final ArgumentMapper[] inputMappers;
+
+        private ComputedArgument(Function<Object[], Object> function, ArgumentMapper[] inputMappers) {
+            this.function = function;
+            this.inputMappers = inputMappers;
+        }
+
+        public Object getFact(Object[] objs) {
+            Object[] args = new Object[inputMappers.length];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = inputMappers[i].getFact(objs);
+            }
+            return function.apply(args);
+        }
+    }
 }
\ No newline at end of file
@@ -1,6 +1,9 @@
 package org.drools.retebuilder;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 import java.util.stream.Stream;
 
 import org.drools.core.RuleBaseConfiguration;
@@ -16,6 +19,7 @@ import org.drools.core.reteoo.builder.BuildContext;
 import org.drools.core.reteoo.builder.NodeFactory;
 import org.drools.core.rule.EntryPointId;
 import org.drools.model.Rule;
+import org.drools.model.Variable;
 import org.drools.retebuilder.adapters.ReteooBuilderAdapter;
 import org.drools.retebuilder.nodes.DataStreamNode;
 import org.kie.api.KieServices;
@@ -30,6 +34,11 @@ public class CanonicalKieBase extends KnowledgeBaseImpl {
 
     private ReteooBuilder reteooBuilder;
 
+    private final Map<Variable<?>, InvokerOptions> invokerOptions = new HashMap<Variable<?>, InvokerOptions>();
+
+    private final Map<String, RuleOptions> ruleOptions = new HashMap<String, RuleOptions>();
+    private Executor blockingExecutor;
+
     public CanonicalKieBase() {
         this(UUID.randomUUID().toString(),
              (RuleBaseConfiguration) KieServices.get().newKieBaseConfiguration() );
@@ -43,6 +52,8 @@ public class CanonicalKieBase extends KnowledgeBaseImpl {
     @Override
     protected void setupRete() {
         this.kieComponentFactory = getConfiguration().getComponentFactory();
+        // the sessions wait for the work running out of their firing thread at the end of each fireAllRules
+        this.kieComponentFactory.setAgendaFactory( CanonicalAgenda.Factory.INSTANCE );
         this.rete = new Rete( this );
         this.reteBuilder = new CanonicalReteBuilder( this );
         this.reteooBuilder = new ReteooBuilderAdapter( reteBuilder );
@@ -100,6 +111,44 @@ public class CanonicalKieBase extends KnowledgeBaseImpl {
         return this.reteooBuilder;
     }
 
+    /**
+     * Registers the options of the invokers binding the given variable. They apply to the rules added afterwards.
+     */
+    public void setInvokerOptions(Variable<?> boundVariable, InvokerOptions options) {
+        invokerOptions.put(boundVariable, options);
+    }
+
+    public InvokerOptions getInvokerOptions(Variable<?> boundVariable) {
+        InvokerOptions options = invokerOptions.get(boundVariable);
+        return options != null ? options : InvokerOptions.DEFAULT;
+    }
+
+    /**
+     * Sets the executor running the blocking invokers and consequences of the sessions of this kie base.
+     */
+    public synchronized void setBlockingExecutor(Executor blockingExecutor) {
+        this.blockingExecutor = blockingExecutor;
+    }
+
+    public synchronized Executor getBlockingExecutor() {
+        if (blockingExecutor == null) {
+            blockingExecutor = BlockingWork.newDefaultExecutor();
+        }
+        return blockingExecutor;
+    }
+
+    /**
+     * Registers the options of the rule with the given name. They apply when the rule is added afterwards.
+     */
+    public void setRuleOptions(String ruleName, RuleOptions options) {
+        ruleOptions.put(ruleName, options);
+    }
+
+    public RuleOptions getRuleOptions(String ruleName) {
+        RuleOptions options = ruleOptions.get(ruleName);
+        return options != null ? options : RuleOptions.DEFAULT;
+    }
+
     public void addRules(Rule... rules) {
         Stream.of(rules).forEach( this::addRule );
     }
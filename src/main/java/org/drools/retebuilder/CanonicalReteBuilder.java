@@ -1,10 +1,13 @@
 package org.drools.retebuilder;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 import org.drools.core.base.ClassObjectType;
 import org.drools.core.common.BaseNode;
@@ -14,6 +17,7 @@ import org.drools.core.reteoo.AccumulateNode;
 import org.drools.core.reteoo.AlphaNode;
 import org.drools.core.reteoo.BetaNode;
 import org.drools.core.reteoo.EntryPointNode;
+import org.drools.core.reteoo.FromNode;
 import org.drools.core.reteoo.InitialFactImpl;
 import org.drools.core.reteoo.LeftInputAdapterNode;
 import org.drools.core.reteoo.LeftTupleSource;
@@ -24,8 +28,8 @@ import org.drools.core.reteoo.ReteooBuilder;
 import org.drools.core.reteoo.TerminalNode;
 import org.drools.core.reteoo.builder.BuildUtils;
 import org.drools.core.rule.Accumulate;
+import org.drools.core.rule.Declaration;
 import org.drools.core.rule.EntryPointId;
-import org.drools.core.rule.From;
 import org.drools.core.rule.GroupElement;
 import org.drools.core.spi.Accumulator;
 import org.drools.core.spi.AlphaNodeFieldConstraint;
@@ -33,24 +37,37 @@ import org.drools.core.spi.BetaNodeFieldConstraint;
 import org.drools.core.spi.DataProvider;
 import org.drools.core.spi.ObjectType;
 import org.drools.model.AccumulatePattern;
+import org.drools.model.BetaIndex;
 import org.drools.model.Condition;
 import org.drools.model.Condition.Type;
 import org.drools.model.Constraint;
 import org.drools.model.DataSourceDefinition;
 import org.drools.model.InvokerPattern;
+import org.drools.model.InvokerSingleValuePattern;
 import org.drools.model.Pattern;
 import org.drools.model.Rule;
 import org.drools.model.SingleConstraint;
 import org.drools.model.Variable;
+import org.drools.retebuilder.accumulate.GroupBy;
 import org.drools.retebuilder.adapters.AccumulateAdapter;
 import org.drools.retebuilder.adapters.FromAdapter;
 import org.drools.retebuilder.adapters.RuleImplAdapter;
 import org.drools.retebuilder.adapters.RuleUnitPattern;
+import org.drools.retebuilder.constraints.AsyncLambdaDataProvider;
+import org.drools.retebuilder.constraints.BatchedLambdaDataProvider;
+import org.drools.retebuilder.constraints.BlockingLambdaDataProvider;
 import org.drools.retebuilder.constraints.ConstraintEvaluator;
+import org.drools.retebuilder.constraints.EvaluationUtil;
+import org.drools.retebuilder.constraints.InvocationCache;
 import org.drools.retebuilder.constraints.LambdaAccumulator;
 import org.drools.retebuilder.constraints.LambdaConstraint;
 import org.drools.retebuilder.constraints.LambdaDataProvider;
+import org.drools.retebuilder.constraints.LambdaReadAccessor;
+import org.drools.retebuilder.nodes.AsyncInvokerNode;
+import org.drools.retebuilder.nodes.CountingExistsNode;
+import org.drools.retebuilder.nodes.CountingNotNode;
 import org.drools.retebuilder.nodes.DataStreamNode;
+import org.drools.retebuilder.nodes.GroupByNode;
 import org.drools.retebuilder.nodes.SyncInvokerNode;
 import org.kie.api.runtime.rule.RuleUnit;
 
@@ -78,11 +95,78 @@ public class CanonicalReteBuilder {
         return streamNodes.get(name);
     }
 
+    /**
+     * A rule with disjunctions is expanded in disjunctive normal form: each branch is built on its own, sharing
+     * with the other ones the nodes of their common prefix, and ends in a terminal node of the same rule, with
+     * the index of the branch as subrule index. As for the subrules of drools, a match of each branch fires.
+     */
     public void addRule(Rule rule) {
-        CanonicalBuildContext context = new CanonicalBuildContext(kieBase);
-        registerRuleUnit( rule, context );
-        buildCondition( rule.getView(), context );
-        buildConsequence( rule, context );
+        List<List<Condition>> branches = toDisjunctiveNormalForm( rule.getView() );
+        CanonicalBuildContext[] contexts = new CanonicalBuildContext[branches.size()];
+        for (int i = 0; i < contexts.length; i++) {
+            contexts[i] = new CanonicalBuildContext(kieBase);
+            registerRuleUnit( rule, contexts[i] );
+            for (Condition condition : branches.get(i)) {
+                buildCondition( condition, contexts[i] );
+            }
+        }
+        checkConsequenceVariablesBound( rule, contexts );
+        RuleImplAdapter ruleImpl = createRuleImpl( rule, contexts );
+        for (int i = 0; i < contexts.length; i++) {
+            buildConsequence( ruleImpl, i, contexts[i] );
+        }
+    }
+
+    private List<List<Condition>> toDisjunctiveNormalForm(Condition condition) {
+        List<List<Condition>> branches = new ArrayList<List<Condition>>();
+        switch (condition.getType()) {
+            case OR:
+                for (Condition subCondition : condition.getSubConditions()) {
+                    branches.addAll( toDisjunctiveNormalForm( subCondition ) );
+                }
+                break;
+            case AND:
+                branches.add( new ArrayList<Condition>() );
+                for (Condition subCondition : condition.getSubConditions()) {
+                    List<List<Condition>> subBranches = toDisjunctiveNormalForm( subCondition );
+                    List<List<Condition>> combined = new ArrayList<List<Condition>>();
+                    for (List<Condition> branch : branches) {
+                        for (List<Condition> subBranch : subBranches) {
+                            List<Condition> conjunction = new ArrayList<Condition>( branch );
+                            conjunction.addAll( subBranch );
+                            combined.add( conjunction );
+                        }
+                    }
+                    branches = combined;
+                }
+                break;
+            default:
+                branches.add( Collections.singletonList( condition ) );
+        }
+        return branches;
+    }
+
+    /**
+     * Each branch of a disjunction fires the same consequence, so the variables it reads have to be bound by all of them.
+     */
+    private void checkConsequenceVariablesBound(Rule rule, CanonicalBuildContext[] contexts) {
+        if (contexts.length == 1) {
+            return;
+        }
+        org.drools.model.Consequence consequence = rule.getConsequence();
+        List<Variable> variables = new ArrayList<Variable>( Arrays.asList( consequence.getDeclarations() ) );
+        for (org.drools.model.Consequence.Update update : consequence.getUpdates()) {
+            variables.add( update.getUpdatedVariable() );
+        }
+        variables.addAll( Arrays.asList( consequence.getDeletes() ) );
+        for (Variable variable : variables) {
+            for (CanonicalBuildContext context : contexts) {
+                if (context.getVariableMapper( variable ) == null) {
+                    throw new IllegalArgumentException( "The consequence of rule " + rule.getName() + " uses " + variable +
+                                                        ", which is not bound by all the branches of its disjunction" );
+                }
+            }
+        }
     }
 
     private void registerRuleUnit(Rule rule, CanonicalBuildContext context) {
@@ -100,16 +184,21 @@ public class CanonicalReteBuilder {
         }
     }
 
-    private void buildConsequence(Rule rule, CanonicalBuildContext context) {
+    private void buildConsequence(RuleImplAdapter ruleImpl, int subruleIndex, CanonicalBuildContext context) {
         TerminalNode terminalNode = kieBase.getNodeFactory().buildTerminalNode( context.getNextId(),
                                                                                 context.getTupleSource(),
-                                                                                new RuleImplAdapter(rule, context),
+                                                                                ruleImpl,
                                                                                 new GroupElement(),
-                                                                                0,
+                                                                                subruleIndex,
                                                                                 context );
         ((BaseNode) terminalNode).attach(context);
     }
 
+    private RuleImplAdapter createRuleImpl(Rule rule, CanonicalBuildContext[] contexts) {
+        RuleOptions options = kieBase.getRuleOptions(rule.getName());
+        return new RuleImplAdapter(rule, contexts, options, options.isBlocking() ? kieBase.getBlockingExecutor() : null);
+    }
+
     private void buildCondition(Condition condition, CanonicalBuildContext context) {
         switch (condition.getType()) {
             case PATTERN:
@@ -125,8 +214,7 @@ public class CanonicalReteBuilder {
                 }
                 break;
             case OR:
-                // TODO
-                break;
+                throw new UnsupportedOperationException("A disjunction must be expanded before building its branches");
             case OOPATH:
                 if (true) throw new UnsupportedOperationException();
                 break;
@@ -134,6 +222,11 @@ public class CanonicalReteBuilder {
     }
 
     private void buildPattern(Condition.Type type, Pattern pattern, CanonicalBuildContext context) {
+        checkNoComputedInputs(pattern, pattern.getInputVariables(), context);
+        checkNoComputedInputs(pattern, pattern.getConstraint(), context);
+        if (pattern instanceof InvokerPattern && buildComputedBinding((InvokerPattern) pattern, context)) {
+            return;
+        }
         initPattern(type, pattern, context);
         buildConstraints(type, pattern, context);
         context.incrementCurrentPatternOffset();
@@ -183,21 +276,87 @@ public class CanonicalReteBuilder {
     }
 
     private void buildInvoker(InvokerPattern pattern, CanonicalBuildContext context) {
-        DataProvider dataProvider = new LambdaDataProvider(pattern);
-        From from = new FromAdapter(dataProvider, pattern);
-        SyncInvokerNode node = new SyncInvokerNode(context, dataProvider, from);
+        InvokerOptions options = kieBase.getInvokerOptions(pattern.getPatternVariable());
+        FromNode node;
+        if (options.getBatchFunction() != null) {
+            AsyncLambdaDataProvider dataProvider = new BatchedLambdaDataProvider(pattern, options);
+            node = new AsyncInvokerNode(context, dataProvider, new FromAdapter(dataProvider, pattern));
+        } else if (options.isBlocking()) {
+            AsyncLambdaDataProvider dataProvider = new BlockingLambdaDataProvider(pattern, options, kieBase.getBlockingExecutor());
+            node = new AsyncInvokerNode(context, dataProvider, new FromAdapter(dataProvider, pattern));
+        } else if (AsyncLambdaDataProvider.isAsync(pattern)) {
+            AsyncLambdaDataProvider dataProvider = new AsyncLambdaDataProvider(pattern, options);
+            node = new AsyncInvokerNode(context, dataProvider, new FromAdapter(dataProvider, pattern));
+        } else {
+            DataProvider dataProvider = new LambdaDataProvider(pattern, options);
+            node = new SyncInvokerNode(context, dataProvider, new FromAdapter(dataProvider, pattern));
+        }
         attachBetaNode(context, node);
     }
 
+    /**
+     * The arguments of constraints and invokers are read from the positions of their facts in the tuple, which a
+     * computed binding doesn't have: reading it anywhere but in the consequence is rejected while building the rule.
+     */
+    private void checkNoComputedInputs(Pattern pattern, Constraint constraint, CanonicalBuildContext context) {
+        if (constraint.getType() == Constraint.Type.SINGLE) {
+            checkNoComputedInputs(pattern, ((SingleConstraint) constraint).getVariables(), context);
+        } else {
+            for (Constraint child : constraint.getChildren()) {
+                checkNoComputedInputs(pattern, child, context);
+            }
+        }
+    }
+
+    private void checkNoComputedInputs(Pattern pattern, Variable[] variables, CanonicalBuildContext context) {
+        for (Variable variable : variables) {
+            if (context.isComputedVariable(variable)) {
+                throw new IllegalArgumentException("The computed binding " + variable + " can only be read by the consequence, " +
+                                                   "but it is used by the pattern of " + pattern.getPatternVariable());
+            }
+        }
+    }
+
+    private static boolean isConstrained(Constraint constraint) {
+        if (constraint.getType() == Constraint.Type.SINGLE) {
+            return ((SingleConstraint) constraint).getVariables().length > 0;
+        }
+        for (Constraint child : constraint.getChildren()) {
+            if (isConstrained(child)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean buildComputedBinding(InvokerPattern pattern, CanonicalBuildContext context) {
+        InvokerOptions options = kieBase.getInvokerOptions(pattern.getPatternVariable());
+        if (!options.isComputed()) {
+            return false;
+        }
+        if (pattern.isMultiValue()) {
+            throw new IllegalArgumentException("A multi-value invoker cannot be a computed binding");
+        }
+        if (isConstrained(pattern.getConstraint())) {
+            throw new IllegalArgumentException("A computed binding cannot be constrained: " + pattern.getPatternVariable());
+        }
+        InvokerSingleValuePattern singleValuePattern = (InvokerSingleValuePattern) pattern;
+        Function<Object[], Object> function = args -> singleValuePattern.getInvokedFunction().apply( args );
+        InvocationCache cache = options.getCache();
+        context.addComputedVariable( pattern.getPatternVariable(),
+                                     cache != null ? args -> cache.get( args, function ) : function,
+                                     pattern.getInputVariables() );
+        return true;
+    }
+
     private void buildConstraint(Condition.Type type, Pattern pattern, Constraint constraint, CanonicalBuildContext context) {
         if (constraint.getType() == Constraint.Type.SINGLE) {
             SingleConstraint singleConstraint = (SingleConstraint) constraint;
-            ConstraintEvaluator constraintEvaluator = new ConstraintEvaluator(pattern, singleConstraint);
             if (singleConstraint.getVariables().length > 0) {
                 if (isAlphaConstraint(pattern, singleConstraint)) {
-                    buildAlphaConstraint(pattern, constraintEvaluator, context);
+                    buildAlphaConstraint(pattern, new ConstraintEvaluator(pattern, singleConstraint), context);
                 } else {
-                    buildBetaConstraint(type, pattern, constraintEvaluator, context);
+                    buildBetaConstraint(type, pattern, createBetaEvaluator(pattern, singleConstraint, context), context);
                 }
             }
         } else if (pattern.getConstraint().getType() == Constraint.Type.AND) {
@@ -207,6 +366,21 @@ public class CanonicalReteBuilder {
         }
     }
 
+    /**
+     * The arguments of a beta constraint bound by joined patterns are read from their positions in the left tuple.
+     */
+    private ConstraintEvaluator createBetaEvaluator(Pattern pattern, SingleConstraint constraint, CanonicalBuildContext context) {
+        Variable[] variables = constraint.getVariables();
+        int[] argsPos = EvaluationUtil.findArgsPos(pattern, variables);
+        for (int i = 0; i < variables.length; i++) {
+            int tupleIndex = context.getTupleIndex(variables[i]);
+            if (argsPos[i] >= 0 && tupleIndex >= 0) {
+                argsPos[i] = tupleIndex;
+            }
+        }
+        return new ConstraintEvaluator(constraint, argsPos);
+    }
+
     private boolean isAlphaConstraint(Pattern pattern, SingleConstraint singleConstraint) {
         for (Variable variable : singleConstraint.getVariables()) {
             if (pattern.getPatternVariable() != variable) {
@@ -217,9 +391,16 @@ public class CanonicalReteBuilder {
     }
 
     private void buildAccumulate(AccumulatePattern pattern, CanonicalBuildContext context) {
+        checkGroupByIsAlone(pattern);
+
         List<BetaNodeFieldConstraint> accumulateConstraints = new ArrayList<BetaNodeFieldConstraint>();
         context.setBetaconstraints(accumulateConstraints);
 
+        if (pattern.getFunctions()[0] instanceof GroupBy) {
+            buildGroupBy((GroupBy<?, ?>) pattern.getFunctions()[0], context);
+            return;
+        }
+
         final BetaConstraints resultsBinder = utils.createBetaNodeConstraint( context,
                                                                               context.getBetaconstraints(),
                                                                               true );
@@ -247,6 +428,39 @@ public class CanonicalReteBuilder {
         attachBetaNode(context, accNode);
     }
 
+    /**
+     * A group-by is built as a group-by node joining the left tuples with its groups: the group takes the position
+     * of the accumulate result in the tuple, so that the variable bound to the function is bound to one group per tuple.
+     */
+    private void buildGroupBy(GroupBy<?, ?> groupBy, CanonicalBuildContext context) {
+        BetaConstraints betaConstraints = utils.createBetaNodeConstraint( context,
+                                                                          context.getBetaconstraints(),
+                                                                          false );
+        attachBetaNode(context, new GroupByNode(context.getNextId(),
+                                                context.getTupleSource(),
+                                                context.getObjectSource(),
+                                                betaConstraints,
+                                                groupBy,
+                                                LambdaAccumulator.isReversible(groupBy.getInnerFunction()),
+                                                context));
+    }
+
+    /**
+     * A group-by has to be the only function of its accumulate, since its node binds the accumulate result to the
+     * groups, while the other results would be shared by all the groups.
+     */
+    private void checkGroupByIsAlone(AccumulatePattern pattern) {
+        if (pattern.getFunctions().length == 1) {
+            return;
+        }
+        for (int i = 0; i < pattern.getFunctions().length; i++) {
+            if (pattern.getFunctions()[i] instanceof GroupBy) {
+                throw new IllegalArgumentException("A group-by must be the only function of its accumulate: " +
+                                                   pattern.getBoundVariables()[i]);
+            }
+        }
+    }
+
     private void buildAlphaConstraint(Pattern pattern, ConstraintEvaluator constraintEvaluator, CanonicalBuildContext context) {
         LambdaConstraint alphaConstraint = new LambdaConstraint(constraintEvaluator);
 
@@ -258,13 +472,23 @@ public class CanonicalReteBuilder {
         context.setObjectSource( (ObjectSource) utils.attachNode( context, alpha ) );
     }
 
+    /**
+     * An exists or not pattern without joins only depends on the number of facts satisfying its alpha constraints:
+     * it is built as a counting node, placed after the alpha nodes, which counts those facts instead of storing them.
+     */
     private void buildBetaConstraint(Condition.Type type, Pattern pattern, ConstraintEvaluator constraintEvaluator, CanonicalBuildContext context) {
         BetaConstraints betaConstraints = buildBetaConstraints(constraintEvaluator, context);
 
         BetaNode beta = null;
         switch (type) {
             case EXISTS:
-                beta = kieBase.getNodeFactory().buildExistsNode(context.getNextId(),
+                beta = constraintEvaluator == null ?
+                       new CountingExistsNode(context.getNextId(),
+                                              context.getTupleSource(),
+                                              context.getObjectSource(),
+                                              betaConstraints,
+                                              context) :
+                       kieBase.getNodeFactory().buildExistsNode(context.getNextId(),
                                                                 context.getTupleSource(),
                                                                 context.getObjectSource(),
                                                                 betaConstraints,
@@ -272,7 +496,13 @@ public class CanonicalReteBuilder {
                 break;
 
             case NOT:
-                beta = kieBase.getNodeFactory().buildNotNode(context.getNextId(),
+                beta = constraintEvaluator == null ?
+                       new CountingNotNode(context.getNextId(),
+                                           context.getTupleSource(),
+                                           context.getObjectSource(),
+                                           betaConstraints,
+                                           context) :
+                       kieBase.getNodeFactory().buildNotNode(context.getNextId(),
                                                              context.getTupleSource(),
                                                              context.getObjectSource(),
                                                              betaConstraints,
@@ -298,7 +528,7 @@ public class CanonicalReteBuilder {
     private BetaConstraints buildBetaConstraints(ConstraintEvaluator constraintEvaluator, CanonicalBuildContext context) {
         List<BetaNodeFieldConstraint> betaConstraintsList = new LinkedList<BetaNodeFieldConstraint>();
         if (constraintEvaluator != null) {
-            betaConstraintsList.add( new LambdaConstraint(constraintEvaluator) );
+            betaConstraintsList.add( new LambdaConstraint(constraintEvaluator, buildIndexDeclarations(constraintEvaluator, context)) );
         }
 
         return utils.createBetaNodeConstraint( context,
@@ -306,6 +536,35 @@ public class CanonicalReteBuilder {
                                                false );
     }
 
+    /**
+     * An equality beta index hashes the left memory of the node on the value extracted from the fact of the joined
+     * pattern, read through a declaration at the position of that fact in the tuple; without such a fact the
+     * memories are not indexed.
+     */
+    private Declaration[] buildIndexDeclarations(ConstraintEvaluator constraintEvaluator, CanonicalBuildContext context) {
+        if (!(constraintEvaluator.getIndex() instanceof BetaIndex)) {
+            return new Declaration[0];
+        }
+        BetaIndex index = (BetaIndex) constraintEvaluator.getIndex();
+        int[] argsPos = constraintEvaluator.getArgsPos();
+        int tupleIndex = -1;
+        for (int pos : argsPos) {
+            if (pos >= 0) {
+                if (tupleIndex >= 0 && tupleIndex != pos) {
+                    return new Declaration[0];
+                }
+                tupleIndex = pos;
+            }
+        }
+        if (tupleIndex < 0) {
+            return new Declaration[0];
+        }
+        org.drools.core.rule.Pattern declarationPattern = new org.drools.core.rule.Pattern( tupleIndex, ClassObjectType.ObjectObjectType );
+        return new Declaration[] {
+                new Declaration( "$index" + tupleIndex, new LambdaReadAccessor( index.getRightOperandExtractor() ), declarationPattern )
+        };
+    }
+
     private EntryPointNode getEntryPoint(CanonicalBuildContext context, Pattern pattern, String epName) {
         EntryPointNode epn = entryPoints.get(epName);
         if (epn == null) {
@@ -1,14 +1,21 @@
 package org.drools.retebuilder;
 
+import org.drools.core.common.InternalWorkingMemory;
 import org.drools.model.datasources.DataSource;
 import org.drools.model.datasources.DataStore;
 import org.drools.model.datasources.Observable;
+import org.drools.retebuilder.datasources.DataStoreBinding;
+import org.drools.retebuilder.datasources.DataStreamJournal;
+import org.drools.retebuilder.datasources.LiveDataStore;
+import org.drools.retebuilder.datasources.StreamingDataStore;
 import org.drools.retebuilder.nodes.DataStreamNode;
 import org.kie.api.runtime.KieSession;
 import org.kie.api.runtime.rule.EntryPoint;
 
 public class DataSourceBinder {
 
+    private static final int JOURNAL_REPLAY_BATCH_SIZE = 4096;
+
     public static void bindDataSource(KieSession kSession, String dataSourceName, DataSource dataSource ) {
         CanonicalKieBase kieBase = (CanonicalKieBase)kSession.getKieBase();
         if (dataSource instanceof Observable ) {
@@ -17,6 +24,10 @@ public class DataSourceBinder {
                 throw new RuntimeException("Unknown data source: " + dataSourceName);
             }
             streamNode.registerDataStreamObserver(kSession, (Observable)dataSource);
+        } else if (dataSource instanceof StreamingDataStore) {
+            bindStreamingDataStore(kSession, dataSourceName, (StreamingDataStore<?>) dataSource, 1);
+        } else if (dataSource instanceof LiveDataStore) {
+            bindDataSource(kSession, dataSourceName, (LiveDataStore<?>) dataSource);
         } else {
             EntryPoint entryPoint = kSession.getEntryPoint(dataSourceName);
             if (entryPoint == null) {
@@ -27,4 +38,52 @@ public class DataSourceBinder {
             }
         }
     }
+
+    /**
+     * Binds a live store, returning the binding that keeps the session in sync with the store: it has to be closed
+     * when the session is disposed, since until then the store references the session.
+     */
+    public static DataStoreBinding bindDataSource(KieSession kSession, String dataSourceName, LiveDataStore<?> dataSource ) {
+        EntryPoint entryPoint = kSession.getEntryPoint(dataSourceName);
+        if (entryPoint == null) {
+            throw new RuntimeException("Unknown data source: " + dataSourceName);
+        }
+        return DataStoreBinding.bind((InternalWorkingMemory) kSession, entryPoint, dataSource);
+    }
+
+    /**
+     * Binds the data source as {@link #bindDataSource(KieSession, String, DataSource)} does, but loads the
+     * content of a {@link DataStore} through a {@link BulkLoader} evaluating the alpha network with the given parallelism.
+     */
+    public static void bindDataSource(KieSession kSession, String dataSourceName, DataSource dataSource, int parallelism ) {
+        if (dataSource instanceof Observable || dataSource instanceof LiveDataStore || parallelism <= 1) {
+            bindDataSource(kSession, dataSourceName, dataSource);
+        } else if (dataSource instanceof StreamingDataStore) {
+            bindStreamingDataStore(kSession, dataSourceName, (StreamingDataStore<?>) dataSource, parallelism);
+        } else {
+            new BulkLoader(kSession, dataSourceName, parallelism).load(((DataStore) dataSource).getObjects());
+        }
+    }
+
+    /**
+     * Binds a stream journaling all its events: the events already retained by the journal are replayed
+     * into the session before the ones coming from the stream.
+     */
+    public static void bindDataSource(KieSession kSession, String dataSourceName, DataSource dataSource, DataStreamJournal<Object> journal ) {
+        if (!(dataSource instanceof Observable)) {
+            throw new IllegalArgumentException("Only streams can be journaled, " + dataSourceName + " is a " + dataSource.getClass().getName());
+        }
+        CanonicalKieBase kieBase = (CanonicalKieBase)kSession.getKieBase();
+        DataStreamNode streamNode = kieBase.getDataStreamNode(dataSourceName);
+        if (streamNode == null) {
+            throw new RuntimeException("Unknown data source: " + dataSourceName);
+        }
+        streamNode.registerDataStreamObserver(kSession, (Observable)dataSource, journal, JOURNAL_REPLAY_BATCH_SIZE);
+    }
+
+    private static void bindStreamingDataStore(KieSession kSession, String dataSourceName, StreamingDataStore<?> dataSource, int parallelism) {
+        try (StreamingDataStore<?> store = dataSource) {
+            new BulkLoader(kSession, dataSourceName, parallelism).load(store.iterator());
+        }
+    }
 }
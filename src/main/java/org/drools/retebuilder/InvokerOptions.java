@@ -0,0 +1,128 @@
+package org.drools.retebuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.drools.retebuilder.constraints.InvocationCache;
+
+/**
+ * Opt-in behaviours of an invoker pattern, registered on the {@link CanonicalKieBase} for the variable bound
+ * by the invoker before the rules using it are added.
+ */
+public class InvokerOptions {
+
+    public static final InvokerOptions DEFAULT = new InvokerOptions();
+
+    private InvocationCache cache;
+    private Function<List<Object[]>, List<?>> batchFunction;
+    private boolean computed;
+    private int resultsLimit;
+    private boolean blocking;
+    private Function<Object, ?> resultKey;
+
+    public static InvokerOptions invokerOptions() {
+        return new InvokerOptions();
+    }
+
+    /**
+     * Caches the results of the invoker by its arguments, evicting the least recently used ones beyond the given size.
+     * The arguments must be immutable: when they are facts, use {@link #cached(int, Function)}.
+     */
+    public InvokerOptions cached(int maxSize) {
+        this.cache = new InvocationCache(maxSize);
+        return this;
+    }
+
+    public InvokerOptions cached(int maxSize, long ttl, TimeUnit unit) {
+        this.cache = new InvocationCache(maxSize, ttl, unit);
+        return this;
+    }
+
+    /**
+     * Caches the results of the invoker by the immutable key extracted from its arguments, e.g. the values
+     * of the fields of a fact read by the function, so that a fact modified in place doesn't hit a stale result.
+     */
+    public InvokerOptions cached(int maxSize, Function<Object[], ?> keyExtractor) {
+        this.cache = new InvocationCache(maxSize, 0, TimeUnit.MILLISECONDS, keyExtractor);
+        return this;
+    }
+
+    public InvokerOptions cached(int maxSize, long ttl, TimeUnit unit, Function<Object[], ?> keyExtractor) {
+        this.cache = new InvocationCache(maxSize, ttl, unit, keyExtractor);
+        return this;
+    }
+
+    public InvocationCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Replaces the per-tuple invocations with a single call of the given function for all the tuples reaching
+     * the invoker during the same evaluation. The function receives the arguments of each invocation and must
+     * return their results in the same order; the results of a multi-value invoker must be iterables.
+     */
+    public InvokerOptions batched(Function<List<Object[]>, List<?>> batchFunction) {
+        this.batchFunction = batchFunction;
+        return this;
+    }
+
+    public Function<List<Object[]>, List<?>> getBatchFunction() {
+        return batchFunction;
+    }
+
+    /**
+     * Doesn't build any node for a single-value invoker: its value is computed from the input variables each
+     * time the consequence reads it, so the function must be side-effect free.
+     */
+    public InvokerOptions computed() {
+        this.computed = true;
+        return this;
+    }
+
+    public boolean isComputed() {
+        return computed;
+    }
+
+    /**
+     * Stops consuming the results of a multi-value invoker after the given number of them. When the invoker returns
+     * a lazy Stream, Spliterator or Iterator, the results beyond the limit are never produced.
+     */
+    public InvokerOptions limit(int resultsLimit) {
+        this.resultsLimit = resultsLimit;
+        return this;
+    }
+
+    public int getResultsLimit() {
+        return resultsLimit;
+    }
+
+    /**
+     * Runs the invoked function on the blocking executor of the kie base instead of the firing thread.
+     * The result is propagated when the function returns, as for an invoker returning a CompletionStage.
+     */
+    public InvokerOptions blocking() {
+        this.blocking = true;
+        return this;
+    }
+
+    public boolean isBlocking() {
+        return blocking;
+    }
+
+    /**
+     * Makes the invoker react to the updates of its inputs by diffing its results by key against the ones previously
+     * produced for the same left tuple: a new result having the same key of a previous one keeps its child tuple,
+     * which is modified with the new result instead of being retracted and inserted again.
+     * The results of a reactive invoker are materialized, since the changed ones are propagated by a further
+     * evaluation of the left tuple that doesn't invoke the function again.
+     */
+    public InvokerOptions reactive(Function<Object, ?> resultKey) {
+        this.resultKey = resultKey;
+        return this;
+    }
+
+    public Function<Object, ?> getResultKey() {
+        return resultKey;
+    }
+}
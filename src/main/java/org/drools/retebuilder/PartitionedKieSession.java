@@ -0,0 +1,471 @@
+package org.drools.retebuilder;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+import org.drools.model.datasources.DataSource;
+import org.drools.model.datasources.DataSourceObserver;
+import org.drools.model.datasources.DataStore;
+import org.drools.model.datasources.Observable;
+import org.drools.model.datasources.ReactiveDataSource;
+import org.drools.retebuilder.datasources.LiveDataStore;
+import org.drools.retebuilder.datasources.StreamingDataStore;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.rule.EntryPoint;
+
+import static org.drools.model.DSL.storeOf;
+
+/**
+ * Splits the working memory of a {@link CanonicalKieBase} across N independent sessions.
+ * Every fact and stream event is routed to a partition by a user supplied key function and
+ * each partition owns a single thread: all the inserts and firings of a given session happen
+ * on that thread, so the sessions never need to be synchronized among themselves.
+ * Only rules whose matches are local to a single key produce the same results of an unpartitioned session.
+ * An insert is validated on the calling thread and executed on the thread of its partition: a failure of
+ * the insertion itself is rethrown by the next call to insert, {@link #fireAllRules()} or {@link #halt()}.
+ */
+public class PartitionedKieSession {
+
+    private final Partition[] partitions;
+    private final Function<Object, ?> partitionKey;
+
+    private final AtomicBoolean firingUntilHalt = new AtomicBoolean( false );
+    private final List<Runnable> unbindings = new CopyOnWriteArrayList<Runnable>();
+
+    public PartitionedKieSession(CanonicalKieBase kieBase, int partitionsNr, Function<Object, ?> partitionKey) {
+        if (partitionsNr < 1) {
+            throw new IllegalArgumentException("The number of partitions must be positive: " + partitionsNr);
+        }
+        this.partitionKey = partitionKey;
+        this.partitions = new Partition[partitionsNr];
+        for (int i = 0; i < partitionsNr; i++) {
+            partitions[i] = new Partition(i, kieBase.newKieSession());
+        }
+    }
+
+    public int getPartitionsNr() {
+        return partitions.length;
+    }
+
+    public KieSession getKieSession(int partition) {
+        return partitions[partition].kieSession;
+    }
+
+    public int partitionOf(Object object) {
+        Object key = partitionKey.apply(object);
+        if (key == null) {
+            return 0;
+        }
+        int h = key.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), partitions.length);
+    }
+
+    /**
+     * Binds a data source to all the partitions: each partition binds, through {@link DataSourceBinder}, a source
+     * holding only the objects routed to it. A {@link LiveDataStore} stays bound, its changes being routed to the partition
+     * owning the changed object, while the objects of a {@link StreamingDataStore} are handed to the partitions
+     * through bounded queues, so that the store is never materialized.
+     */
+    public void bindDataSource(String dataSourceName, DataSource dataSource) {
+        rethrowFailures();
+        if (dataSource instanceof Observable) {
+            PartitionFeed[] feeds = new PartitionFeed[partitions.length];
+            for (int i = 0; i < partitions.length; i++) {
+                feeds[i] = new PartitionFeed();
+            }
+            bindPartitions( dataSourceName, i -> feeds[i] );
+            ((Observable) dataSource).addObserver(new PartitionRouter(feeds, false));
+        } else if (dataSource instanceof LiveDataStore) {
+            LiveDataStore<Object>[] stores = new LiveDataStore[partitions.length];
+            DataSourceObserver[] feeds = new DataSourceObserver[partitions.length];
+            for (int i = 0; i < partitions.length; i++) {
+                stores[i] = new LiveDataStore<Object>();
+                feeds[i] = new LiveStoreFeed( stores[i] );
+            }
+            bindPartitions( dataSourceName, i -> stores[i] );
+            LiveDataStore<Object> liveStore = (LiveDataStore<Object>) dataSource;
+            PartitionRouter router = new PartitionRouter(feeds, true);
+            liveStore.subscribe( router );
+            unbindings.add( () -> liveStore.unsubscribe( router ) );
+        } else if (dataSource instanceof StreamingDataStore) {
+            bindStreamingDataStore( dataSourceName, (StreamingDataStore<?>) dataSource );
+        } else {
+            List<Object>[] objects = new List[partitions.length];
+            for (int i = 0; i < partitions.length; i++) {
+                objects[i] = new ArrayList<Object>();
+            }
+            for (Object obj : ((DataStore) dataSource).getObjects()) {
+                objects[partitionOf(obj)].add(obj);
+            }
+            bindPartitions( dataSourceName, i -> storeOf( objects[i].toArray() ) );
+        }
+        for (Partition partition : partitions) {
+            partition.scheduleFiring();
+        }
+    }
+
+    private void bindPartitions(String dataSourceName, IntFunction<DataSource> partitionSource) {
+        List<CompletableFuture<?>> bindings = new ArrayList<>();
+        for (int i = 0; i < partitions.length; i++) {
+            DataSource source = partitionSource.apply( i );
+            bindings.add( partitions[i].submit( kSession -> {
+                DataSourceBinder.bindDataSource( kSession, dataSourceName, source );
+                return null;
+            } ) );
+        }
+        await(bindings);
+    }
+
+    private void bindStreamingDataStore(String dataSourceName, StreamingDataStore<?> dataSource) {
+        PartitionQueue[] queues = new PartitionQueue[partitions.length];
+        List<CompletableFuture<?>> bindings = new ArrayList<>();
+        for (int i = 0; i < partitions.length; i++) {
+            PartitionQueue queue = new PartitionQueue();
+            queues[i] = queue;
+            bindings.add( partitions[i].submit( kSession -> {
+                try {
+                    DataSourceBinder.bindDataSource( kSession, dataSourceName, StreamingDataStore.streamOf( queue ) );
+                } finally {
+                    queue.closed = true;
+                }
+                return null;
+            } ) );
+        }
+        try (StreamingDataStore<?> store = dataSource) {
+            Iterator<?> iterator = store.iterator();
+            while (iterator.hasNext()) {
+                Object obj = iterator.next();
+                if (!queues[partitionOf(obj)].put(obj)) {
+                    // the binding of that partition failed: its failure is reported below
+                    break;
+                }
+            }
+        } finally {
+            for (PartitionQueue queue : queues) {
+                queue.put( PartitionQueue.END );
+            }
+            await(bindings);
+        }
+    }
+
+    public void insert(Object object) {
+        partitions[partitionOf(object)].insert(null, object);
+    }
+
+    public void insert(String entryPointName, Object object) {
+        partitions[partitionOf(object)].insert(entryPointName, object);
+    }
+
+    public int fireAllRules() {
+        rethrowFailures();
+        List<CompletableFuture<Integer>> firings = new ArrayList<>();
+        for (Partition partition : partitions) {
+            firings.add( partition.submit( KieSession::fireAllRules ) );
+        }
+        int fired = 0;
+        for (CompletableFuture<Integer> firing : firings) {
+            fired += firing.join();
+        }
+        rethrowFailures();
+        return fired;
+    }
+
+    /**
+     * Switches all the partitions in continuous mode: every partition fires its rules as soon as
+     * the routed facts and events have been inserted, until {@link #halt()} is invoked.
+     */
+    public void fireUntilHalt() {
+        firingUntilHalt.set(true);
+        for (Partition partition : partitions) {
+            partition.scheduleFiring();
+        }
+    }
+
+    public void halt() {
+        firingUntilHalt.set(false);
+        for (Partition partition : partitions) {
+            partition.kieSession.halt();
+        }
+        rethrowFailures();
+    }
+
+    /**
+     * Disposes all the partition sessions, unbinding them from the live stores they are bound to,
+     * and then rethrows the failure of any partition not yet reported.
+     */
+    public void dispose() {
+        firingUntilHalt.set(false);
+        for (Runnable unbinding : unbindings) {
+            unbinding.run();
+        }
+        List<CompletableFuture<?>> disposals = new ArrayList<>();
+        for (Partition partition : partitions) {
+            disposals.add( partition.submit( kSession -> {
+                kSession.dispose();
+                return null;
+            } ) );
+        }
+        await(disposals);
+        for (Partition partition : partitions) {
+            partition.executor.shutdown();
+        }
+        rethrowFailures();
+    }
+
+    private void rethrowFailures() {
+        for (Partition partition : partitions) {
+            partition.rethrowFailure();
+        }
+    }
+
+    private static void await(List<? extends CompletableFuture<?>> futures) {
+        try {
+            CompletableFuture.allOf( futures.toArray( new CompletableFuture[futures.size()] ) ).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private class Partition {
+        private final KieSession kieSession;
+        private final ExecutorService executor;
+        private final AtomicBoolean firingScheduled = new AtomicBoolean( false );
+        private final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+
+        private Partition(int index, KieSession kieSession) {
+            this.kieSession = kieSession;
+            this.executor = Executors.newSingleThreadExecutor( r -> {
+                Thread t = new Thread( r, "kie-partition-" + index );
+                t.setDaemon( true );
+                return t;
+            } );
+        }
+
+        private <T> CompletableFuture<T> submit(Function<KieSession, T> task) {
+            return CompletableFuture.supplyAsync( () -> task.apply( kieSession ), executor );
+        }
+
+        private void insert(String entryPointName, Object object) {
+            rethrowFailure();
+            EntryPoint entryPoint = entryPointName == null ? kieSession : kieSession.getEntryPoint( entryPointName );
+            if (entryPoint == null) {
+                throw new RuntimeException( "Unknown data source: " + entryPointName );
+            }
+            execute( () -> entryPoint.insert( object ) );
+            scheduleFiring();
+        }
+
+        private void execute(Runnable task) {
+            executor.execute( () -> {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    failure.compareAndSet( null, e );
+                }
+            } );
+        }
+
+        private void rethrowFailure() {
+            RuntimeException e = failure.getAndSet( null );
+            if (e != null) {
+                throw e;
+            }
+        }
+
+        private void push(Runnable change) {
+            if (executor.isShutdown()) {
+                // a stream cannot be unbound, so its events are ignored once the session is disposed
+                return;
+            }
+            execute( change );
+            scheduleFiring();
+        }
+
+        private void scheduleFiring() {
+            // coalesces the firings requested while a previous one is still queued
+            if (firingUntilHalt.get() && firingScheduled.compareAndSet( false, true )) {
+                execute( () -> {
+                    firingScheduled.set( false );
+                    kieSession.fireAllRules();
+                } );
+            }
+        }
+    }
+
+    /**
+     * Routes the changes of a source to the partitions. An update or delete goes to the partition owning the object:
+     * when the owners are tracked, an update moving the object to another key is replayed as a delete from its
+     * old partition and an insert into the new one, otherwise the owner is computed again from the key.
+     */
+    private class PartitionRouter implements DataSourceObserver {
+        private final DataSourceObserver[] feeds;
+        private final Map<Object, Integer> owners;
+
+        private PartitionRouter(DataSourceObserver[] feeds, boolean trackOwners) {
+            this.feeds = feeds;
+            this.owners = trackOwners ? new IdentityHashMap<Object, Integer>() : null;
+        }
+
+        @Override
+        public boolean objectInserted(Object object) {
+            int partition = partitionOf(object);
+            if (owners != null) {
+                owners.put(object, partition);
+            }
+            partitions[partition].push( () -> feeds[partition].objectInserted( object ) );
+            return true;
+        }
+
+        @Override
+        public boolean objectUpdated(Object object) {
+            int partition = partitionOf(object);
+            Integer owner = owners != null ? owners.put(object, partition) : null;
+            if (owner != null && owner != partition) {
+                partitions[owner].push( () -> feeds[owner].objectDeleted( object ) );
+                partitions[partition].push( () -> feeds[partition].objectInserted( object ) );
+            } else {
+                partitions[partition].push( () -> feeds[partition].objectUpdated( object ) );
+            }
+            return true;
+        }
+
+        @Override
+        public boolean objectDeleted(Object object) {
+            Integer owner = owners != null ? owners.remove(object) : null;
+            int partition = owner != null ? owner : partitionOf(object);
+            partitions[partition].push( () -> feeds[partition].objectDeleted( object ) );
+            return true;
+        }
+    }
+
+    /**
+     * The source of a single partition, notifying the changes routed to it on the thread of the partition.
+     */
+    private static class PartitionFeed implements ReactiveDataSource<Object>, DataSourceObserver {
+        private final List<DataSourceObserver> observers = new ArrayList<DataSourceObserver>();
+
+        @Override
+        public void addObserver(DataSourceObserver observer) {
+            observers.add(observer);
+        }
+
+        @Override
+        public boolean objectInserted(Object object) {
+            for (DataSourceObserver observer : observers) {
+                observer.objectInserted(object);
+            }
+            return true;
+        }
+
+        @Override
+        public boolean objectUpdated(Object object) {
+            for (DataSourceObserver observer : observers) {
+                observer.objectUpdated(object);
+            }
+            return true;
+        }
+
+        @Override
+        public boolean objectDeleted(Object object) {
+            for (DataSourceObserver observer : observers) {
+                observer.objectDeleted(object);
+            }
+            return true;
+        }
+    }
+
+    private static class LiveStoreFeed implements DataSourceObserver {
+        private final LiveDataStore<Object> store;
+
+        private LiveStoreFeed(LiveDataStore<Object> store) {
+            this.store = store;
+        }
+
+        @Override
+        public boolean objectInserted(Object object) {
+            store.add(object);
+            return true;
+        }
+
+        @Override
+        public boolean objectUpdated(Object object) {
+            store.update(object);
+            return true;
+        }
+
+        @Override
+        public boolean objectDeleted(Object object) {
+            store.remove(object);
+            return true;
+        }
+    }
+
+    /**
+     * Hands the objects of a streaming store to the thread of a partition, blocking the reader while the partition
+     * lags behind so that no more than {@link #CAPACITY} objects are buffered.
+     */
+    private static class PartitionQueue implements Iterator<Object> {
+        private static final int CAPACITY = 1024;
+        private static final Object END = new Object();
+
+        private final BlockingQueue<Object> queue = new ArrayBlockingQueue<Object>(CAPACITY);
+        private volatile boolean closed = false;
+        private Object next;
+
+        private boolean put(Object obj) {
+            try {
+                while (!closed) {
+                    if (queue.offer(obj, 10, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                }
+                return false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                try {
+                    next = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+            }
+            return next != END;
+        }
+
+        @Override
+        public Object next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Object result = next;
+            next = null;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.drools.retebuilder;
+
+import java.util.function.Function;
+
+/**
+ * Opt-in behaviours of a rule, registered on the {@link CanonicalKieBase} by rule name before the rule is added.
+ */
+public class RuleOptions {
+
+    public static final RuleOptions DEFAULT = new RuleOptions();
+
+    private boolean blocking;
+    private boolean deferredSideEffects;
+    private boolean parallel;
+    private Function<Object[], ?> activationKey;
+
+    public static RuleOptions ruleOptions() {
+        return new RuleOptions();
+    }
+
+    /**
+     * Runs the consequence on the blocking executor of the kie base instead of the firing thread.
+     * Its inserts, updates and deletes are applied by the engine thread when it completes.
+     */
+    public RuleOptions blocking() {
+        this.blocking = true;
+        return this;
+    }
+
+    public boolean isBlocking() {
+        return blocking;
+    }
+
+    /**
+     * Collects the inserts, updates and deletes of the consequence and applies them together when it completes,
+     * propagating a single update for a fact updated more than once and nothing for a fact inserted and then deleted.
+     */
+    public RuleOptions deferredSideEffects() {
+        this.deferredSideEffects = true;
+        return this;
+    }
+
+    public boolean isDeferredSideEffects() {
+        return deferredSideEffects;
+    }
+
+    /**
+     * Runs the consequence on the common fork-join pool, while the agenda moves on, when it is side-effect free,
+     * i.e. it doesn't use drools and declares no update, insert or delete; otherwise this option is ignored.
+     * The firings of the same rule in a session are executed in order, and the fireAllRules of the session
+     * waits for all of them and rethrows the first failure of their blocks.
+     */
+    public RuleOptions parallel() {
+        this.parallel = true;
+        return this;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Coalesces the activations of the rule having the same key, computed from the facts declared by
+     * the consequence: an activation is not executed while a later one with the same key is still pending,
+     * so only the latest match per key fires after a burst of updates.
+     */
+    public RuleOptions coalesceBy(Function<Object[], ?> activationKey) {
+        this.activationKey = activationKey;
+        return this;
+    }
+
+    public Function<Object[], ?> getActivationKey() {
+        return activationKey;
+    }
+}
@@ -0,0 +1,21 @@
+package org.drools.retebuilder.accumulate;
+
+import java.io.Serializable;
+
+import org.drools.model.functions.accumulate.AbstractAccumulateFunction;
+
+/**
+ * Base class of the fusible accumulate functions over floating point values.
+ */
+public abstract class AbstractDoubleValuedFunction<T, A extends Serializable, R> extends AbstractAccumulateFunction<T, A, R> implements FusibleAccumulateFunction.OfDouble<T, A> {
+
+    @Override
+    public void action(A acc, T obj) {
+        accumulateValue(acc, extractDouble(obj));
+    }
+
+    @Override
+    public void reverse(A acc, T obj) {
+        reverseValue(acc, extractDouble(obj));
+    }
+}
@@ -0,0 +1,21 @@
+package org.drools.retebuilder.accumulate;
+
+import java.io.Serializable;
+
+import org.drools.model.functions.accumulate.AbstractAccumulateFunction;
+
+/**
+ * Base class of the fusible accumulate functions over integral values.
+ */
+public abstract class AbstractLongValuedFunction<T, A extends Serializable, R> extends AbstractAccumulateFunction<T, A, R> implements FusibleAccumulateFunction.OfLong<T, A> {
+
+    @Override
+    public void action(A acc, T obj) {
+        accumulateValue(acc, extractLong(obj));
+    }
+
+    @Override
+    public void reverse(A acc, T obj) {
+        reverseValue(acc, extractLong(obj));
+    }
+}
@@ -0,0 +1,17 @@
+package org.drools.retebuilder.accumulate;
+
+import java.io.Serializable;
+
+/**
+ * The accumulation context of an average: integral values are summed exactly as longs, floating point ones as doubles.
+ */
+public class AverageContext implements Serializable {
+
+    long longSum;
+    double doubleSum;
+    long count;
+
+    public double getAverage() {
+        return count == 0 ? 0 : (longSum + doubleSum) / count;
+    }
+}
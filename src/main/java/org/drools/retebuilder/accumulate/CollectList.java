@@ -0,0 +1,52 @@
+package org.drools.retebuilder.accumulate;
+
+import java.io.Serializable;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.drools.model.functions.accumulate.AbstractAccumulateFunction;
+
+/**
+ * Collects the accumulated facts, in the order in which they have been accumulated, into a {@link PersistentList}:
+ * accumulating or retracting a fact derives a new list in O(log n) instead of copying the collected facts,
+ * and the result is the current list itself.
+ */
+public class CollectList<T> extends AbstractAccumulateFunction<T, CollectList.Context<T>, List<T>> {
+
+    public static <T> CollectList<T> collectList() {
+        return new CollectList<T>();
+    }
+
+    @Override
+    public Context<T> init() {
+        return new Context<T>();
+    }
+
+    @Override
+    public void action(Context<T> acc, T obj) {
+        long key = acc.nextKey++;
+        acc.keys.put(obj, key);
+        acc.list = acc.list.with(key, obj);
+    }
+
+    @Override
+    public void reverse(Context<T> acc, T obj) {
+        Long key = acc.keys.remove(obj);
+        if (key != null) {
+            acc.list = acc.list.without(key);
+        }
+    }
+
+    @Override
+    public List<T> result(Context<T> acc) {
+        return acc.list;
+    }
+
+    public static class Context<T> implements Serializable {
+        private PersistentList<T> list = PersistentList.empty();
+        private long nextKey;
+        // the key of each collected fact, by identity, since a modified fact may no longer be equal to itself
+        private final Map<Object, Long> keys = new IdentityHashMap<Object, Long>();
+    }
+}
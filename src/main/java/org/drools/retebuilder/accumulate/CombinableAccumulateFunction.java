@@ -0,0 +1,17 @@
+package org.drools.retebuilder.accumulate;
+
+import java.io.Serializable;
+
+/**
+ * An accumulate function whose contexts can be combined: the facts can then be accumulated in parallel
+ * into partial contexts, which are eventually merged into the context of the accumulate.
+ * Accumulating into different contexts must be thread safe, i.e. neither the function nor the extractors
+ * it applies to the facts must have mutable state, since they are run by the threads of the common fork-join pool.
+ */
+public interface CombinableAccumulateFunction<A extends Serializable> {
+
+    /**
+     * Merges into the target context the facts accumulated into the partial one.
+     */
+    void combine(A target, A partial);
+}
@@ -0,0 +1,42 @@
+package org.drools.retebuilder.accumulate;
+
+/**
+ * Counts the accumulated facts in a primitive context.
+ */
+public class Count<T> extends AbstractLongValuedFunction<T, MutableLong, Long> implements CombinableAccumulateFunction<MutableLong> {
+
+    @Override
+    public MutableLong init() {
+        return new MutableLong();
+    }
+
+    @Override
+    public Object getExtractor() {
+        return null;
+    }
+
+    @Override
+    public long extractLong(T obj) {
+        return 0;
+    }
+
+    @Override
+    public void accumulateValue(MutableLong acc, long value) {
+        acc.value++;
+    }
+
+    @Override
+    public void reverseValue(MutableLong acc, long value) {
+        acc.value--;
+    }
+
+    @Override
+    public void combine(MutableLong target, MutableLong partial) {
+        target.value += partial.value;
+    }
+
+    @Override
+    public Long result(MutableLong acc) {
+        return acc.value;
+    }
+}
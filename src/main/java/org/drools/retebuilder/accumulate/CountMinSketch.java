@@ -0,0 +1,94 @@
+package org.drools.retebuilder.accumulate;
+
+/**
+ * A count-min sketch estimating the frequency of each value in a matrix of counters. An estimate never
+ * underestimates the frequency, and overestimates it by more than epsilon times the number of values
+ * with a probability lower than delta. Values can also be removed, as long as they have been added.
+ */
+public class CountMinSketch implements Sketch<CountMinSketch> {
+
+    private final double epsilon;
+    private final long[][] counters;
+    private long size;
+
+    public CountMinSketch(double epsilon, double delta) {
+        if (epsilon <= 0 || delta <= 0 || delta >= 1) {
+            throw new IllegalArgumentException("Invalid error bounds of a count-min sketch: epsilon " + epsilon + ", delta " + delta);
+        }
+        this.epsilon = epsilon;
+        int width = (int) Math.ceil(Math.E / epsilon);
+        int depth = (int) Math.ceil(Math.log(1 / delta));
+        this.counters = new long[depth][width];
+    }
+
+    private CountMinSketch(CountMinSketch sketch) {
+        this.epsilon = sketch.epsilon;
+        this.counters = new long[sketch.counters.length][];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = sketch.counters[i].clone();
+        }
+        this.size = sketch.size;
+    }
+
+    public void add(Object value) {
+        update(value, 1);
+    }
+
+    public void remove(Object value) {
+        update(value, -1);
+    }
+
+    private void update(Object value, long delta) {
+        long hash = HyperLogLog.mix(value == null ? 0 : value.hashCode());
+        for (int row = 0; row < counters.length; row++) {
+            counters[row][bucket(hash, row)] += delta;
+        }
+        size += delta;
+    }
+
+    public long estimateCount(Object value) {
+        long hash = HyperLogLog.mix(value == null ? 0 : value.hashCode());
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < counters.length; row++) {
+            estimate = Math.min(estimate, counters[row][bucket(hash, row)]);
+        }
+        return estimate;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public CountMinSketch copy() {
+        return new CountMinSketch(this);
+    }
+
+    @Override
+    public double getErrorBound() {
+        return epsilon;
+    }
+
+    @Override
+    public void merge(CountMinSketch other) {
+        if (other.counters.length != counters.length || other.counters[0].length != counters[0].length) {
+            throw new IllegalArgumentException("Cannot merge count-min sketches of different sizes");
+        }
+        for (int row = 0; row < counters.length; row++) {
+            for (int i = 0; i < counters[row].length; i++) {
+                counters[row][i] += other.counters[row][i];
+            }
+        }
+        size += other.size;
+    }
+
+    private int bucket(long hash, int row) {
+        // each row uses a different combination of the two halves of the hash
+        int combined = (int) hash + (row + 1) * (int) (hash >>> 32);
+        return (combined & Integer.MAX_VALUE) % counters[row].length;
+    }
+
+    @Override
+    public String toString() {
+        return "CountMinSketch[size=" + size + ", depth=" + counters.length + ", width=" + counters[0].length + "]";
+    }
+}
@@ -0,0 +1,12 @@
+package org.drools.retebuilder.accumulate;
+
+import java.io.Serializable;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * A serializable extractor of a double value, so that equal lambdas or method references can be recognized
+ * as the same extractor.
+ */
+@FunctionalInterface
+public interface DoubleExtractor<T> extends ToDoubleFunction<T>, Serializable {
+}
@@ -0,0 +1,71 @@
+package org.drools.retebuilder.accumulate;
+
+import java.io.Serializable;
+import java.lang.invoke.SerializedLambda;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * Identifies an extractor by what it does rather than by instance: two serializable lambdas or method references
+ * are equal when they are implemented by the same method and capture equal arguments. Any other extractor is
+ * identified by its instance.
+ */
+public final class ExtractorKey {
+
+    private final Object extractor;
+    private final Object[] fingerprint;
+    private final int hashCode;
+
+    private ExtractorKey(Object extractor, Object[] fingerprint) {
+        this.extractor = extractor;
+        this.fingerprint = fingerprint;
+        this.hashCode = fingerprint != null ? Arrays.hashCode(fingerprint) : System.identityHashCode(extractor);
+    }
+
+    public static ExtractorKey of(Object extractor) {
+        return new ExtractorKey(extractor, fingerprintOf(extractor));
+    }
+
+    private static Object[] fingerprintOf(Object extractor) {
+        if (!(extractor instanceof Serializable)) {
+            return null;
+        }
+        try {
+            Method writeReplace = extractor.getClass().getDeclaredMethod("writeReplace");
+            writeReplace.setAccessible(true);
+            Object replacement = writeReplace.invoke(extractor);
+            if (!(replacement instanceof SerializedLambda)) {
+                return null;
+            }
+            SerializedLambda lambda = (SerializedLambda) replacement;
+            Object[] fingerprint = new Object[lambda.getCapturedArgCount() + 3];
+            fingerprint[0] = lambda.getImplClass();
+            fingerprint[1] = lambda.getImplMethodName();
+            fingerprint[2] = lambda.getImplMethodSignature();
+            for (int i = 0; i < lambda.getCapturedArgCount(); i++) {
+                fingerprint[i + 3] = lambda.getCapturedArg(i);
+            }
+            return fingerprint;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // not a lambda, or not accessible
+            return null;
+        }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof ExtractorKey)) {
+            return false;
+        }
+        ExtractorKey key = (ExtractorKey) other;
+        return fingerprint != null ? Arrays.equals(fingerprint, key.fingerprint) : extractor == key.extractor;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+}
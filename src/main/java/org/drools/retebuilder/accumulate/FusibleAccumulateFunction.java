@@ -0,0 +1,40 @@
+package org.drools.retebuilder.accumulate;
+
+import java.io.Serializable;
+
+/**
+ * An accumulate function that exposes the extraction of its value from the accumulated fact separately
+ * from its accumulation. The functions of the same accumulate having equal extractors can then be fused,
+ * extracting the value once per fact and feeding it to all of them.
+ */
+public interface FusibleAccumulateFunction<T, A extends Serializable> {
+
+    /**
+     * The function extracting the value from the fact, or null if the accumulated value doesn't depend on it.
+     */
+    Object getExtractor();
+
+    /**
+     * A fusible function over integral values.
+     */
+    interface OfLong<T, A extends Serializable> extends FusibleAccumulateFunction<T, A> {
+
+        long extractLong(T obj);
+
+        void accumulateValue(A acc, long value);
+
+        void reverseValue(A acc, long value);
+    }
+
+    /**
+     * A fusible function over floating point values.
+     */
+    interface OfDouble<T, A extends Serializable> extends FusibleAccumulateFunction<T, A> {
+
+        double extractDouble(T obj);
+
+        void accumulateValue(A acc, double value);
+
+        void reverseValue(A acc, double value);
+    }
+}
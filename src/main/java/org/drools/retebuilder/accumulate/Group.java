@@ -0,0 +1,48 @@
+package org.drools.retebuilder.accumulate;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * The result of a {@link GroupBy} for a single key. The same instance represents the group as long as it
+ * contains at least one fact, so that the tuple propagated for it is updated rather than retracted and reinserted.
+ */
+public class Group<K, R> {
+
+    private final K key;
+    private R value;
+
+    // the context of the inner function, and the facts of the group when that function can't be reversed
+    Serializable context;
+    final Set<Object> facts;
+    int count;
+
+    Group(K key, Serializable context, boolean keepFacts) {
+        this.key = key;
+        this.context = context;
+        this.facts = keepFacts ? Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>()) : null;
+    }
+
+    public K getKey() {
+        return key;
+    }
+
+    public R getValue() {
+        return value;
+    }
+
+    void setValue(R value) {
+        this.value = value;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    @Override
+    public String toString() {
+        return key + "=" + value;
+    }
+}
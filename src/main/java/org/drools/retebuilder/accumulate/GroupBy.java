@@ -0,0 +1,124 @@
+package org.drools.retebuilder.accumulate;
+
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.function.Function;
+
+import org.drools.model.AccumulateFunction;
+import org.drools.model.functions.accumulate.AbstractAccumulateFunction;
+
+/**
+ * Partitions the accumulated facts by key and applies an inner accumulate function to each partition,
+ * keeping a context per key. When used in an accumulate, the variable bound to this function is bound to each
+ * {@link Group} in turn, i.e. the rule matches once per group.
+ *
+ * A group-by isn't evaluated as an accumulate function: it is compiled into a group-by node, keeping the groups
+ * of each session by key, which adds and removes the facts through the operations of this class and only propagates
+ * the group changed by each of them, when its value actually changes.
+ */
+public class GroupBy<T, K> extends AbstractAccumulateFunction<T, Serializable, Group<K, Object>> {
+
+    private final Function<T, K> keyExtractor;
+    private final AccumulateFunction innerFunction;
+
+    public GroupBy(Function<T, K> keyExtractor, AccumulateFunction innerFunction) {
+        this.keyExtractor = keyExtractor;
+        this.innerFunction = innerFunction;
+    }
+
+    public static <T, K> GroupBy<T, K> groupBy(ValueExtractor<T, K> keyExtractor, AccumulateFunction innerFunction) {
+        return new GroupBy<T, K>(keyExtractor, innerFunction);
+    }
+
+    public AccumulateFunction getInnerFunction() {
+        return innerFunction;
+    }
+
+    public K getKey(T fact) {
+        return keyExtractor.apply(fact);
+    }
+
+    /**
+     * Creates the empty group of the given key. A group whose inner function can't be reversed keeps its facts,
+     * to accumulate them again when one of them is removed.
+     */
+    public Group<K, Object> newGroup(K key, boolean reversible) {
+        return new Group<K, Object>(key, innerFunction.init(), !reversible);
+    }
+
+    public void add(Group<K, Object> group, T fact) {
+        innerFunction.action(group.context, fact);
+        if (group.facts != null) {
+            group.facts.add(fact);
+        }
+        group.count++;
+    }
+
+    public void remove(Group<K, Object> group, T fact) {
+        if (--group.count == 0) {
+            return;
+        }
+        if (group.facts == null) {
+            innerFunction.reverse(group.context, fact);
+        } else {
+            group.facts.remove(fact);
+            reaccumulate(group);
+        }
+    }
+
+    /**
+     * Accumulates again a fact of the group that has been modified without changing its key.
+     */
+    public void update(Group<K, Object> group, T fact) {
+        if (group.facts != null) {
+            reaccumulate(group);
+        } else if (group.count == 1) {
+            // the values the fact had when it was accumulated are unknown: the only fact of the group is accumulated anew
+            group.context = innerFunction.init();
+            innerFunction.action(group.context, fact);
+        } else {
+            innerFunction.reverse(group.context, fact);
+            innerFunction.action(group.context, fact);
+        }
+    }
+
+    private void reaccumulate(Group<K, Object> group) {
+        group.context = innerFunction.init();
+        for (Object fact : group.facts) {
+            innerFunction.action(group.context, fact);
+        }
+    }
+
+    /**
+     * Computes the value of the group after its facts have changed, returning whether it is different from the
+     * previous one. A new group is always changed, even when its value is null.
+     */
+    public boolean refresh(Group<K, Object> group, boolean isNew) {
+        Object value = innerFunction.result(group.context);
+        if (!isNew && Objects.equals(value, group.getValue())) {
+            return false;
+        }
+        group.setValue(value);
+        return true;
+    }
+
+    @Override
+    public Serializable init() {
+        throw new UnsupportedOperationException("A group-by is evaluated by its own node");
+    }
+
+    @Override
+    public void action(Serializable acc, T obj) {
+        throw new UnsupportedOperationException("A group-by is evaluated by its own node");
+    }
+
+    @Override
+    public void reverse(Serializable acc, T obj) {
+        throw new UnsupportedOperationException("A group-by is evaluated by its own node");
+    }
+
+    @Override
+    public Group<K, Object> result(Serializable acc) {
+        throw new UnsupportedOperationException("A group-by is evaluated by its own node");
+    }
+}
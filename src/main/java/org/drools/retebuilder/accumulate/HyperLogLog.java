@@ -0,0 +1,134 @@
+package org.drools.retebuilder.accumulate;
+
+import java.util.Arrays;
+
+/**
+ * A HyperLogLog sketch estimating the number of distinct values in 2^precision registers of one byte each.
+ * The values are hashed from their hash code, so values with the same hash code are counted once.
+ * Each register also counts its values by rank, so that a value can be removed as long as it has been added:
+ * the register then falls back to the highest rank still counted, as if the value had never been added.
+ * The counts take at most one int per possible rank for each register, whatever the number of values.
+ */
+public class HyperLogLog implements Sketch<HyperLogLog> {
+
+    private final int precision;
+    private final byte[] registers;
+    private final int[][] rankCounts;
+
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("The precision of a HyperLogLog must be between 4 and 18: " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+        this.rankCounts = new int[1 << precision][];
+    }
+
+    public void add(Object value) {
+        long hash = mix(value == null ? 0 : value.hashCode());
+        int index = (int) (hash >>> (64 - precision));
+        byte rank = rankOf(hash);
+        countRank(index, rank, 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    public void remove(Object value) {
+        long hash = mix(value == null ? 0 : value.hashCode());
+        int index = (int) (hash >>> (64 - precision));
+        byte rank = rankOf(hash);
+        int[] counts = rankCounts[index];
+        if (counts == null || rank >= counts.length || counts[rank] == 0) {
+            throw new IllegalArgumentException("Cannot remove a value that has not been added: " + value);
+        }
+        if (--counts[rank] == 0 && rank == registers[index]) {
+            byte highest = rank;
+            while (highest > 0 && counts[highest] == 0) {
+                highest--;
+            }
+            registers[index] = highest;
+        }
+    }
+
+    private byte rankOf(long hash) {
+        // the position of the first set bit after the index bits, the guard bit bounds it
+        return (byte) (Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1);
+    }
+
+    private void countRank(int index, int rank, int count) {
+        int[] counts = rankCounts[index];
+        if (counts == null || rank >= counts.length) {
+            counts = counts == null ? new int[rank + 1] : Arrays.copyOf(counts, rank + 1);
+            rankCounts[index] = counts;
+        }
+        counts[rank] += count;
+    }
+
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            // linear counting is more accurate for small cardinalities
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    @Override
+    public double getErrorBound() {
+        return 1.04 / Math.sqrt(registers.length);
+    }
+
+    @Override
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge HyperLogLog sketches of precision " + precision + " and " + other.precision);
+        }
+        for (int i = 0; i < registers.length; i++) {
+            int[] otherCounts = other.rankCounts[i];
+            if (otherCounts == null) {
+                continue;
+            }
+            for (int rank = 0; rank < otherCounts.length; rank++) {
+                if (otherCounts[rank] > 0) {
+                    countRank(i, rank, otherCounts[rank]);
+                }
+            }
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    private static double alpha(int m) {
+        switch (m) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+
+    static long mix(long hash) {
+        // the finalizer of MurmurHash3, spreading the bits of the hash code over the whole long
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,12 @@
+package org.drools.retebuilder.accumulate;
+
+import java.io.Serializable;
+import java.util.function.ToIntFunction;
+
+/**
+ * A serializable extractor of an int value, so that equal lambdas or method references can be recognized
+ * as the same extractor.
+ */
+@FunctionalInterface
+public interface IntExtractor<T> extends ToIntFunction<T>, Serializable {
+}
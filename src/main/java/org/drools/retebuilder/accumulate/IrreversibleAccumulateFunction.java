@@ -0,0 +1,8 @@
+package org.drools.retebuilder.accumulate;
+
+/**
+ * Marks an accumulate function whose result cannot be updated when a fact is retracted,
+ * so that the accumulation has to be recomputed from the remaining facts.
+ */
+public interface IrreversibleAccumulateFunction {
+}
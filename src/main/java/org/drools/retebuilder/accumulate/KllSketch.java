@@ -0,0 +1,212 @@
+package org.drools.retebuilder.accumulate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A KLL sketch estimating the quantiles of a stream of doubles. The values are kept in a hierarchy of compactors,
+ * the one at level h holding values of weight 2^h: when the sketch is full, a compactor is sorted and every other
+ * of its values is promoted to the next level. With parameter k it retains O(k) values, and the rank of
+ * an estimated quantile is wrong by more than {@link #getErrorBound()} times the number of values with
+ * a probability lower than 1%.
+ * The values removed are kept in a second sketch and counted with a negative weight, so the error of the rank
+ * is then relative to the number of values both added and removed. The compactors are driven by the given seed,
+ * so that a sketch fed with the same values always gives the same estimates.
+ */
+public class KllSketch implements Sketch<KllSketch> {
+
+    private static final double CAPACITY_DECAY = 2.0 / 3.0;
+
+    private final int k;
+    private final List<double[]> levels = new ArrayList<double[]>();
+    private final List<int[]> sizes = new ArrayList<int[]>();
+    private final Random random;
+    private long count;
+    // the values removed, created on the first removal
+    private KllSketch removed;
+
+    public KllSketch(int k) {
+        this(k, new Random());
+    }
+
+    public KllSketch(int k, long seed) {
+        this(k, new Random(seed));
+    }
+
+    private KllSketch(int k, Random random) {
+        if (k < 8) {
+            throw new IllegalArgumentException("The parameter of a KLL sketch must be at least 8: " + k);
+        }
+        this.k = k;
+        this.random = random;
+        addLevel();
+    }
+
+    public void add(double value) {
+        append(0, value);
+        count++;
+        compressIfFull();
+    }
+
+    /**
+     * Removes a value that has been added.
+     */
+    public void remove(double value) {
+        removedSketch().add(value);
+    }
+
+    private KllSketch removedSketch() {
+        if (removed == null) {
+            removed = new KllSketch(k, random.nextLong());
+        }
+        return removed;
+    }
+
+    /**
+     * The value whose rank is closest to the given fraction of the number of values, or NaN when empty.
+     */
+    public double quantile(double fraction) {
+        if (size() <= 0) {
+            return Double.NaN;
+        }
+        int retained = retainedSize() + (removed != null ? removed.retainedSize() : 0);
+        double[] values = new double[retained];
+        long[] weights = new long[retained];
+        int pos = collect(values, weights, 0, 1);
+        if (removed != null) {
+            removed.collect(values, weights, pos, -1);
+        }
+        Integer[] order = new Integer[retained];
+        for (int i = 0; i < retained; i++) {
+            order[i] = i;
+        }
+        // a removed value is ranked before an equal added one, so that the rank never overshoots
+        Arrays.sort(order, (i1, i2) -> values[i1] != values[i2] ?
+                                       Double.compare(values[i1], values[i2]) :
+                                       Long.compare(weights[i1], weights[i2]));
+
+        long totalWeight = 0;
+        for (long weight : weights) {
+            totalWeight += weight;
+        }
+        double targetRank = fraction * totalWeight;
+        long rank = 0;
+        for (int i : order) {
+            rank += weights[i];
+            if (rank >= targetRank) {
+                return values[i];
+            }
+        }
+        return values[order[retained - 1]];
+    }
+
+    private int collect(double[] values, long[] weights, int pos, int sign) {
+        for (int h = 0; h < levels.size(); h++) {
+            for (int i = 0; i < sizes.get(h)[0]; i++) {
+                values[pos] = levels.get(h)[i];
+                weights[pos++] = sign * (1L << h);
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * The number of values added and not removed.
+     */
+    public long size() {
+        return removed != null ? count - removed.count : count;
+    }
+
+    @Override
+    public double getErrorBound() {
+        // the empirical single-sided rank error of KLL sketches at 99% confidence
+        return 2.296 / Math.pow(k, 0.9723);
+    }
+
+    @Override
+    public void merge(KllSketch other) {
+        for (int h = 0; h < other.levels.size(); h++) {
+            while (levels.size() <= h) {
+                addLevel();
+            }
+            for (int i = 0; i < other.sizes.get(h)[0]; i++) {
+                append(h, other.levels.get(h)[i]);
+            }
+        }
+        count += other.count;
+        compressIfFull();
+        if (other.removed != null) {
+            removedSketch().merge(other.removed);
+        }
+    }
+
+    private void compressIfFull() {
+        while (retainedSize() > totalCapacity()) {
+            for (int h = 0; h < levels.size(); h++) {
+                if (sizes.get(h)[0] >= capacity(h)) {
+                    compact(h);
+                    break;
+                }
+            }
+        }
+    }
+
+    private void compact(int level) {
+        if (level + 1 == levels.size()) {
+            addLevel();
+        }
+        double[] values = levels.get(level);
+        int size = sizes.get(level)[0];
+        Arrays.sort(values, 0, size);
+        // with an odd size the largest value stays at this level
+        int pairs = size / 2;
+        int offset = random.nextBoolean() ? 1 : 0;
+        for (int i = 0; i < pairs; i++) {
+            append(level + 1, values[2 * i + offset]);
+        }
+        if (size % 2 == 1) {
+            values[0] = values[size - 1];
+            sizes.get(level)[0] = 1;
+        } else {
+            sizes.get(level)[0] = 0;
+        }
+    }
+
+    private void append(int level, double value) {
+        double[] values = levels.get(level);
+        int[] size = sizes.get(level);
+        if (size[0] == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+            levels.set(level, values);
+        }
+        values[size[0]++] = value;
+    }
+
+    private void addLevel() {
+        levels.add(new double[k]);
+        sizes.add(new int[1]);
+    }
+
+    private int capacity(int level) {
+        int depth = levels.size() - level - 1;
+        return Math.max(2, (int) Math.ceil(k * Math.pow(CAPACITY_DECAY, depth)));
+    }
+
+    private int totalCapacity() {
+        int capacity = 0;
+        for (int h = 0; h < levels.size(); h++) {
+            capacity += capacity(h);
+        }
+        return capacity;
+    }
+
+    private int retainedSize() {
+        int size = 0;
+        for (int[] levelSize : sizes) {
+            size += levelSize[0];
+        }
+        return size;
+    }
+}
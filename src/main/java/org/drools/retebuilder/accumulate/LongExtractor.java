@@ -0,0 +1,12 @@
+package org.drools.retebuilder.accumulate;
+
+import java.io.Serializable;
+import java.util.function.ToLongFunction;
+
+/**
+ * A serializable extractor of a long value, so that equal lambdas or method references can be recognized
+ * as the same extractor.
+ */
+@FunctionalInterface
+public interface LongExtractor<T> extends ToLongFunction<T>, Serializable {
+}
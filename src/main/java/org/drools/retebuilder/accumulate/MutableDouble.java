@@ -0,0 +1,15 @@
+package org.drools.retebuilder.accumulate;
+
+import java.io.Serializable;
+
+/**
+ * A mutable double accumulation context, updated in place so that accumulating a fact allocates nothing.
+ */
+public class MutableDouble implements Serializable {
+
+    double value;
+
+    public double get() {
+        return value;
+    }
+}
@@ -0,0 +1,15 @@
+package org.drools.retebuilder.accumulate;
+
+import java.io.Serializable;
+
+/**
+ * A mutable long accumulation context, updated in place so that accumulating a fact allocates nothing.
+ */
+public class MutableLong implements Serializable {
+
+    long value;
+
+    public long get() {
+        return value;
+    }
+}
@@ -0,0 +1,111 @@
+package org.drools.retebuilder.accumulate;
+
+import java.util.List;
+import java.util.function.Function;
+
+import org.drools.model.functions.accumulate.AbstractAccumulateFunction;
+
+/**
+ * Factories of accumulate functions over comparable values that depend on their order: minimum, maximum and
+ * the k largest or smallest values. The values are kept in an ordered multiset, so that both accumulating
+ * and retracting a fact cost O(log n), and retracting the current minimum never requires a full rescan.
+ */
+public final class OrderedAccumulates {
+
+    private OrderedAccumulates() { }
+
+    public static <T, C extends Comparable<C>> Min<T, C> min(ValueExtractor<T, C> extractor) {
+        return new Min<T, C>(extractor);
+    }
+
+    public static <T, C extends Comparable<C>> Max<T, C> max(ValueExtractor<T, C> extractor) {
+        return new Max<T, C>(extractor);
+    }
+
+    public static <T, C extends Comparable<C>> Largest<T, C> topK(int k, ValueExtractor<T, C> extractor) {
+        return new Largest<T, C>(k, extractor);
+    }
+
+    public static <T, C extends Comparable<C>> Smallest<T, C> bottomK(int k, ValueExtractor<T, C> extractor) {
+        return new Smallest<T, C>(k, extractor);
+    }
+
+    public abstract static class OrderedAccumulateFunction<T, C extends Comparable<C>, R> extends AbstractAccumulateFunction<T, OrderedMultiset<C>, R>
+            implements CombinableAccumulateFunction<OrderedMultiset<C>> {
+        private final Function<T, C> extractor;
+
+        protected OrderedAccumulateFunction(Function<T, C> extractor) {
+            this.extractor = extractor;
+        }
+
+        @Override
+        public OrderedMultiset<C> init() {
+            return new OrderedMultiset<C>();
+        }
+
+        @Override
+        public void action(OrderedMultiset<C> acc, T obj) {
+            acc.add(extractor.apply(obj));
+        }
+
+        @Override
+        public void reverse(OrderedMultiset<C> acc, T obj) {
+            acc.remove(extractor.apply(obj));
+        }
+
+        @Override
+        public void combine(OrderedMultiset<C> target, OrderedMultiset<C> partial) {
+            target.addAll(partial);
+        }
+    }
+
+    public static class Min<T, C extends Comparable<C>> extends OrderedAccumulateFunction<T, C, C> {
+        public Min(Function<T, C> extractor) {
+            super(extractor);
+        }
+
+        @Override
+        public C result(OrderedMultiset<C> acc) {
+            return acc.first();
+        }
+    }
+
+    public static class Max<T, C extends Comparable<C>> extends OrderedAccumulateFunction<T, C, C> {
+        public Max(Function<T, C> extractor) {
+            super(extractor);
+        }
+
+        @Override
+        public C result(OrderedMultiset<C> acc) {
+            return acc.last();
+        }
+    }
+
+    public static class Largest<T, C extends Comparable<C>> extends OrderedAccumulateFunction<T, C, List<C>> {
+        private final int k;
+
+        public Largest(int k, Function<T, C> extractor) {
+            super(extractor);
+            this.k = k;
+        }
+
+        @Override
+        public List<C> result(OrderedMultiset<C> acc) {
+            return acc.largest(k);
+        }
+    }
+
+    public static class Smallest<T, C extends Comparable<C>> extends OrderedAccumulateFunction<T, C, List<C>> {
+        private final int k;
+
+        public Smallest(int k, Function<T, C> extractor) {
+            super(extractor);
+            this.k = k;
+        }
+
+        @Override
+        public List<C> result(OrderedMultiset<C> acc) {
+            return acc.smallest(k);
+        }
+    }
+}
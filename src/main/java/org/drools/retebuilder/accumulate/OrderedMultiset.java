@@ -0,0 +1,103 @@
+package org.drools.retebuilder.accumulate;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A sorted multiset of values, counting the occurrences of each distinct value, so that adding and removing
+ * a value, as well as reading the smallest or the largest one, cost O(log n).
+ */
+public class OrderedMultiset<K> implements Serializable {
+
+    private final TreeMap<K, int[]> counts;
+    private int size;
+
+    public OrderedMultiset() {
+        this.counts = new TreeMap<K, int[]>();
+    }
+
+    public OrderedMultiset(Comparator<? super K> comparator) {
+        this.counts = new TreeMap<K, int[]>(comparator);
+    }
+
+    public void add(K value) {
+        int[] count = counts.get(value);
+        if (count == null) {
+            counts.put(value, new int[] { 1 });
+        } else {
+            count[0]++;
+        }
+        size++;
+    }
+
+    public boolean remove(K value) {
+        int[] count = counts.get(value);
+        if (count == null) {
+            return false;
+        }
+        if (--count[0] == 0) {
+            counts.remove(value);
+        }
+        size--;
+        return true;
+    }
+
+    public void addAll(OrderedMultiset<K> other) {
+        for (Map.Entry<K, int[]> entry : other.counts.entrySet()) {
+            int[] count = counts.get(entry.getKey());
+            if (count == null) {
+                counts.put(entry.getKey(), new int[] { entry.getValue()[0] });
+            } else {
+                count[0] += entry.getValue()[0];
+            }
+        }
+        size += other.size;
+    }
+
+    public K first() {
+        return counts.isEmpty() ? null : counts.firstKey();
+    }
+
+    public K last() {
+        return counts.isEmpty() ? null : counts.lastKey();
+    }
+
+    /**
+     * The k largest values, from the largest one, repeated as many times as they occur.
+     */
+    public List<K> largest(int k) {
+        return take(counts.descendingMap(), k);
+    }
+
+    /**
+     * The k smallest values, from the smallest one, repeated as many times as they occur.
+     */
+    public List<K> smallest(int k) {
+        return take(counts, k);
+    }
+
+    private List<K> take(Map<K, int[]> map, int k) {
+        List<K> values = new ArrayList<K>(Math.min(k, size));
+        for (Map.Entry<K, int[]> entry : map.entrySet()) {
+            for (int i = 0; i < entry.getValue()[0]; i++) {
+                if (values.size() == k) {
+                    return values;
+                }
+                values.add(entry.getKey());
+            }
+        }
+        return values;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
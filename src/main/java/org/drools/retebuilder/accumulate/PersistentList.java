@@ -0,0 +1,190 @@
+package org.drools.retebuilder.accumulate;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable list whose elements are kept in a balanced tree ordered by a key, so that adding or removing an element
+ * returns a new list sharing all but O(log n) nodes with the original one. Each instance is a stable snapshot that
+ * can be handed out as the result of an accumulate while the accumulation goes on.
+ */
+public final class PersistentList<E> extends AbstractList<E> implements Serializable {
+
+    private static final PersistentList<?> EMPTY = new PersistentList<Object>(null);
+
+    private final Node<E> root;
+
+    private PersistentList(Node<E> root) {
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentList<E> empty() {
+        return (PersistentList<E>) EMPTY;
+    }
+
+    /**
+     * Returns a list with the given element at the position of the given key, replacing the element having the same key.
+     */
+    public PersistentList<E> with(long key, E element) {
+        return new PersistentList<E>(insert(root, key, element));
+    }
+
+    /**
+     * Returns a list without the element having the given key, or this list if there is no such element.
+     */
+    public PersistentList<E> without(long key) {
+        Node<E> newRoot = delete(root, key);
+        return newRoot == root ? this : new PersistentList<E>(newRoot);
+    }
+
+    @Override
+    public E get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        Node<E> node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node.element;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            private final Deque<Node<E>> path = new ArrayDeque<Node<E>>();
+            {
+                pushLeft(root);
+            }
+
+            private void pushLeft(Node<E> node) {
+                for (; node != null; node = node.left) {
+                    path.push(node);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !path.isEmpty();
+            }
+
+            @Override
+            public E next() {
+                if (path.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                Node<E> node = path.pop();
+                pushLeft(node.right);
+                return node.element;
+            }
+        };
+    }
+
+    private static <E> Node<E> insert(Node<E> node, long key, E element) {
+        if (node == null) {
+            return new Node<E>(key, element, null, null);
+        }
+        if (key < node.key) {
+            return balance(node.key, node.element, insert(node.left, key, element), node.right);
+        }
+        if (key > node.key) {
+            return balance(node.key, node.element, node.left, insert(node.right, key, element));
+        }
+        return new Node<E>(key, element, node.left, node.right);
+    }
+
+    private static <E> Node<E> delete(Node<E> node, long key) {
+        if (node == null) {
+            return null;
+        }
+        if (key < node.key) {
+            Node<E> left = delete(node.left, key);
+            return left == node.left ? node : balance(node.key, node.element, left, node.right);
+        }
+        if (key > node.key) {
+            Node<E> right = delete(node.right, key);
+            return right == node.right ? node : balance(node.key, node.element, node.left, right);
+        }
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        Node<E> successor = node.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        return balance(successor.key, successor.element, node.left, delete(node.right, successor.key));
+    }
+
+    private static <E> Node<E> balance(long key, E element, Node<E> left, Node<E> right) {
+        int diff = height(left) - height(right);
+        if (diff > 1) {
+            if (height(left.left) < height(left.right)) {
+                left = rotateLeft(left);
+            }
+            return rotateRight(new Node<E>(key, element, left, right));
+        }
+        if (diff < -1) {
+            if (height(right.right) < height(right.left)) {
+                right = rotateRight(right);
+            }
+            return rotateLeft(new Node<E>(key, element, left, right));
+        }
+        return new Node<E>(key, element, left, right);
+    }
+
+    private static <E> Node<E> rotateLeft(Node<E> node) {
+        Node<E> right = node.right;
+        return new Node<E>(right.key, right.element, new Node<E>(node.key, node.element, node.left, right.left), right.right);
+    }
+
+    private static <E> Node<E> rotateRight(Node<E> node) {
+        Node<E> left = node.left;
+        return new Node<E>(left.key, left.element, left.left, new Node<E>(node.key, node.element, left.right, node.right));
+    }
+
+    private static int height(Node<?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static class Node<E> implements Serializable {
+        private final long key;
+        private final E element;
+        private final Node<E> left;
+        private final Node<E> right;
+        private final int height;
+        private final int size;
+
+        private Node(long key, E element, Node<E> left, Node<E> right) {
+            this.key = key;
+            this.element = element;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size = size(left) + size(right) + 1;
+        }
+    }
+}
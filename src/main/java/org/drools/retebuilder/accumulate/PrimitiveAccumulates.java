@@ -0,0 +1,66 @@
+package org.drools.retebuilder.accumulate;
+
+/**
+ * Factories of accumulate functions over primitive values, to be used in place of the ones of the model
+ * when the extracted value is a primitive: the value is never boxed and the accumulation context is
+ * updated in place, so accumulating or reversing a fact allocates nothing, except for min and max,
+ * which keep the values in an ordered multiset to be reversible in O(log n).
+ * The extractors are serializable, so that the functions of the same accumulate extracting the same value
+ * can be fused to extract it only once per fact.
+ */
+public final class PrimitiveAccumulates {
+
+    private PrimitiveAccumulates() { }
+
+    public static <T> PrimitiveSum.OfInt<T> sumInt(IntExtractor<T> extractor) {
+        return new PrimitiveSum.OfInt<T>(extractor);
+    }
+
+    public static <T> PrimitiveSum.OfLong<T> sumLong(LongExtractor<T> extractor) {
+        return new PrimitiveSum.OfLong<T>(extractor);
+    }
+
+    public static <T> PrimitiveSum.OfDouble<T> sumDouble(DoubleExtractor<T> extractor) {
+        return new PrimitiveSum.OfDouble<T>(extractor);
+    }
+
+    public static <T> PrimitiveAverage.OfInt<T> avgInt(IntExtractor<T> extractor) {
+        return new PrimitiveAverage.OfInt<T>(extractor);
+    }
+
+    public static <T> PrimitiveAverage.OfLong<T> avgLong(LongExtractor<T> extractor) {
+        return new PrimitiveAverage.OfLong<T>(extractor);
+    }
+
+    public static <T> PrimitiveAverage.OfDouble<T> avgDouble(DoubleExtractor<T> extractor) {
+        return new PrimitiveAverage.OfDouble<T>(extractor);
+    }
+
+    public static <T> PrimitiveMin.OfInt<T> minInt(IntExtractor<T> extractor) {
+        return new PrimitiveMin.OfInt<T>(extractor);
+    }
+
+    public static <T> PrimitiveMin.OfLong<T> minLong(LongExtractor<T> extractor) {
+        return new PrimitiveMin.OfLong<T>(extractor);
+    }
+
+    public static <T> PrimitiveMin.OfDouble<T> minDouble(DoubleExtractor<T> extractor) {
+        return new PrimitiveMin.OfDouble<T>(extractor);
+    }
+
+    public static <T> PrimitiveMax.OfInt<T> maxInt(IntExtractor<T> extractor) {
+        return new PrimitiveMax.OfInt<T>(extractor);
+    }
+
+    public static <T> PrimitiveMax.OfLong<T> maxLong(LongExtractor<T> extractor) {
+        return new PrimitiveMax.OfLong<T>(extractor);
+    }
+
+    public static <T> PrimitiveMax.OfDouble<T> maxDouble(DoubleExtractor<T> extractor) {
+        return new PrimitiveMax.OfDouble<T>(extractor);
+    }
+
+    public static <T> Count<T> count() {
+        return new Count<T>();
+    }
+}
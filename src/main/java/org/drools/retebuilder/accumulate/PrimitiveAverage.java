@@ -0,0 +1,154 @@
+package org.drools.retebuilder.accumulate;
+
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Averages of primitive values extracted from the accumulated facts, without boxing them.
+ */
+public final class PrimitiveAverage {
+
+    private PrimitiveAverage() { }
+
+    public static class OfInt<T> extends AbstractLongValuedFunction<T, AverageContext, Double> implements CombinableAccumulateFunction<AverageContext> {
+        private final ToIntFunction<T> extractor;
+
+        public OfInt(ToIntFunction<T> extractor) {
+            this.extractor = extractor;
+        }
+
+        @Override
+        public AverageContext init() {
+            return new AverageContext();
+        }
+
+        @Override
+        public Object getExtractor() {
+            return extractor;
+        }
+
+        @Override
+        public long extractLong(T obj) {
+            return extractor.applyAsInt(obj);
+        }
+
+        @Override
+        public void accumulateValue(AverageContext acc, long value) {
+            acc.longSum += value;
+            acc.count++;
+        }
+
+        @Override
+        public void reverseValue(AverageContext acc, long value) {
+            acc.longSum -= value;
+            acc.count--;
+        }
+
+        @Override
+        public void combine(AverageContext target, AverageContext partial) {
+            target.longSum += partial.longSum;
+            target.doubleSum += partial.doubleSum;
+            target.count += partial.count;
+        }
+
+        @Override
+        public Double result(AverageContext acc) {
+            return acc.getAverage();
+        }
+    }
+
+    public static class OfLong<T> extends AbstractLongValuedFunction<T, AverageContext, Double> implements CombinableAccumulateFunction<AverageContext> {
+        private final ToLongFunction<T> extractor;
+
+        public OfLong(ToLongFunction<T> extractor) {
+            this.extractor = extractor;
+        }
+
+        @Override
+        public AverageContext init() {
+            return new AverageContext();
+        }
+
+        @Override
+        public Object getExtractor() {
+            return extractor;
+        }
+
+        @Override
+        public long extractLong(T obj) {
+            return extractor.applyAsLong(obj);
+        }
+
+        @Override
+        public void accumulateValue(AverageContext acc, long value) {
+            acc.longSum += value;
+            acc.count++;
+        }
+
+        @Override
+        public void reverseValue(AverageContext acc, long value) {
+            acc.longSum -= value;
+            acc.count--;
+        }
+
+        @Override
+        public void combine(AverageContext target, AverageContext partial) {
+            target.longSum += partial.longSum;
+            target.doubleSum += partial.doubleSum;
+            target.count += partial.count;
+        }
+
+        @Override
+        public Double result(AverageContext acc) {
+            return acc.getAverage();
+        }
+    }
+
+    public static class OfDouble<T> extends AbstractDoubleValuedFunction<T, AverageContext, Double> implements CombinableAccumulateFunction<AverageContext> {
+        private final ToDoubleFunction<T> extractor;
+
+        public OfDouble(ToDoubleFunction<T> extractor) {
+            this.extractor = extractor;
+        }
+
+        @Override
+        public AverageContext init() {
+            return new AverageContext();
+        }
+
+        @Override
+        public Object getExtractor() {
+            return extractor;
+        }
+
+        @Override
+        public double extractDouble(T obj) {
+            return extractor.applyAsDouble(obj);
+        }
+
+        @Override
+        public void accumulateValue(AverageContext acc, double value) {
+            acc.doubleSum += value;
+            acc.count++;
+        }
+
+        @Override
+        public void reverseValue(AverageContext acc, double value) {
+            acc.doubleSum -= value;
+            acc.count--;
+        }
+
+        @Override
+        public void combine(AverageContext target, AverageContext partial) {
+            target.longSum += partial.longSum;
+            target.doubleSum += partial.doubleSum;
+            target.count += partial.count;
+        }
+
+        @Override
+        public Double result(AverageContext acc) {
+            return acc.getAverage();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package org.drools.retebuilder.accumulate;
+
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Minimums of primitive values extracted from the accumulated facts.
+ * The values are kept in an ordered multiset, so that retracting the current minimum costs O(log n)
+ * instead of recomputing the accumulation from the remaining facts.
+ */
+public final class PrimitiveMin {
+
+    private PrimitiveMin() { }
+
+    public static class OfInt<T> extends AbstractLongValuedFunction<T, OrderedMultiset<Long>, Integer> implements CombinableAccumulateFunction<OrderedMultiset<Long>> {
+        private final ToIntFunction<T> extractor;
+
+        public OfInt(ToIntFunction<T> extractor) {
+            this.extractor = extractor;
+        }
+
+        @Override
+        public OrderedMultiset<Long> init() {
+            return new OrderedMultiset<Long>();
+        }
+
+        @Override
+        public Object getExtractor() {
+            return extractor;
+        }
+
+        @Override
+        public long extractLong(T obj) {
+            return extractor.applyAsInt(obj);
+        }
+
+        @Override
+        public void accumulateValue(OrderedMultiset<Long> acc, long value) {
+            acc.add(value);
+        }
+
+        @Override
+        public void reverseValue(OrderedMultiset<Long> acc, long value) {
+            acc.remove(value);
+        }
+
+        @Override
+        public void combine(OrderedMultiset<Long> target, OrderedMultiset<Long> partial) {
+            target.addAll(partial);
+        }
+
+        @Override
+        public Integer result(OrderedMultiset<Long> acc) {
+            Long value = acc.first();
+            return value == null ? null : value.intValue();
+        }
+    }
+
+    public static class OfLong<T> extends AbstractLongValuedFunction<T, OrderedMultiset<Long>, Long> implements CombinableAccumulateFunction<OrderedMultiset<Long>> {
+        private final ToLongFunction<T> extractor;
+
+        public OfLong(ToLongFunction<T> extractor) {
+            this.extractor = extractor;
+        }
+
+        @Override
+        public OrderedMultiset<Long> init() {
+            return new OrderedMultiset<Long>();
+        }
+
+        @Override
+        public Object getExtractor() {
+            return extractor;
+        }
+
+        @Override
+        public long extractLong(T obj) {
+            return extractor.applyAsLong(obj);
+        }
+
+        @Override
+        public void accumulateValue(OrderedMultiset<Long> acc, long value) {
+            acc.add(value);
+        }
+
+        @Override
+        public void reverseValue(OrderedMultiset<Long> acc, long value) {
+            acc.remove(value);
+        }
+
+        @Override
+        public void combine(OrderedMultiset<Long> target, OrderedMultiset<Long> partial) {
+            target.addAll(partial);
+        }
+
+        @Override
+        public Long result(OrderedMultiset<Long> acc) {
+            return acc.first();
+        }
+    }
+
+    public static class OfDouble<T> extends AbstractDoubleValuedFunction<T, OrderedMultiset<Double>, Double> implements CombinableAccumulateFunction<OrderedMultiset<Double>> {
+        private final ToDoubleFunction<T> extractor;
+
+        public OfDouble(ToDoubleFunction<T> extractor) {
+            this.extractor = extractor;
+        }
+
+        @Override
+        public OrderedMultiset<Double> init() {
+            return new OrderedMultiset<Double>();
+        }
+
+        @Override
+        public Object getExtractor() {
+            return extractor;
+        }
+
+        @Override
+        public double extractDouble(T obj) {
+            return extractor.applyAsDouble(obj);
+        }
+
+        @Override
+        public void accumulateValue(OrderedMultiset<Double> acc, double value) {
+            acc.add(value);
+        }
+
+        @Override
+        public void reverseValue(OrderedMultiset<Double> acc, double value) {
+            acc.remove(value);
+        }
+
+        @Override
+        public void combine(OrderedMultiset<Double> target, OrderedMultiset<Double> partial) {
+            target.addAll(partial);
+        }
+
+        @Override
+        public Double result(OrderedMultiset<Double> acc) {
+            return acc.first();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package org.drools.retebuilder.accumulate;
+
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Sums of primitive values extracted from the accumulated facts, without boxing them.
+ */
+public final class PrimitiveSum {
+
+    private PrimitiveSum() { }
+
+    public static class OfInt<T> extends AbstractLongValuedFunction<T, MutableLong, Integer> implements CombinableAccumulateFunction<MutableLong> {
+        private final ToIntFunction<T> extractor;
+
+        public OfInt(ToIntFunction<T> extractor) {
+            this.extractor = extractor;
+        }
+
+        @Override
+        public MutableLong init() {
+            return new MutableLong();
+        }
+
+        @Override
+        public Object getExtractor() {
+            return extractor;
+        }
+
+        @Override
+        public long extractLong(T obj) {
+            return extractor.applyAsInt(obj);
+        }
+
+        @Override
+        public void accumulateValue(MutableLong acc, long value) {
+            acc.value += value;
+        }
+
+        @Override
+        public void reverseValue(MutableLong acc, long value) {
+            acc.value -= value;
+        }
+
+        @Override
+        public void combine(MutableLong target, MutableLong partial) {
+            target.value += partial.value;
+        }
+
+        /**
+         * The ints are summed as a long, so a partial sum can't overflow, but a total out of the int range is rejected
+         * with an ArithmeticException instead of being truncated: sum them with {@link OfLong} to get a long.
+         */
+        @Override
+        public Integer result(MutableLong acc) {
+            return Math.toIntExact(acc.value);
+        }
+    }
+
+    public static class OfLong<T> extends AbstractLongValuedFunction<T, MutableLong, Long> implements CombinableAccumulateFunction<MutableLong> {
+        private final ToLongFunction<T> extractor;
+
+        public OfLong(ToLongFunction<T> extractor) {
+            this.extractor = extractor;
+        }
+
+        @Override
+        public MutableLong init() {
+            return new MutableLong();
+        }
+
+        @Override
+        public Object getExtractor() {
+            return extractor;
+        }
+
+        @Override
+        public long extractLong(T obj) {
+            return extractor.applyAsLong(obj);
+        }
+
+        @Override
+        public void accumulateValue(MutableLong acc, long value) {
+            acc.value += value;
+        }
+
+        @Override
+        public void reverseValue(MutableLong acc, long value) {
+            acc.value -= value;
+        }
+
+        @Override
+        public void combine(MutableLong target, MutableLong partial) {
+            target.value += partial.value;
+        }
+
+        @Override
+        public Long result(MutableLong acc) {
+            return acc.value;
+        }
+    }
+
+    public static class OfDouble<T> extends AbstractDoubleValuedFunction<T, MutableDouble, Double> implements CombinableAccumulateFunction<MutableDouble> {
+        private final ToDoubleFunction<T> extractor;
+
+        public OfDouble(ToDoubleFunction<T> extractor) {
+            this.extractor = extractor;
+        }
+
+        @Override
+        public MutableDouble init() {
+            return new MutableDouble();
+        }
+
+        @Override
+        public Object getExtractor() {
+            return extractor;
+        }
+
+        @Override
+        public double extractDouble(T obj) {
+            return extractor.applyAsDouble(obj);
+        }
+
+        @Override
+        public void accumulateValue(MutableDouble acc, double value) {
+            acc.value += value;
+        }
+
+        @Override
+        public void reverseValue(MutableDouble acc, double value) {
+            acc.value -= value;
+        }
+
+        @Override
+        public void combine(MutableDouble target, MutableDouble partial) {
+            target.value += partial.value;
+        }
+
+        @Override
+        public Double result(MutableDouble acc) {
+            return acc.value;
+        }
+    }
+}
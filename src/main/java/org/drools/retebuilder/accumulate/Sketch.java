@@ -0,0 +1,19 @@
+package org.drools.retebuilder.accumulate;
+
+import java.io.Serializable;
+
+/**
+ * A summary of a stream of values taking a bounded amount of memory, whose estimates are approximate
+ * within a known error bound. Sketches of the same configuration can be merged, as if they had seen
+ * both streams.
+ */
+public interface Sketch<S extends Sketch<S>> extends Serializable {
+
+    /**
+     * The bound of the error of the estimates: relative to the estimated value for a distinct count,
+     * to the number of values for a rank or a frequency.
+     */
+    double getErrorBound();
+
+    void merge(S other);
+}
@@ -0,0 +1,169 @@
+package org.drools.retebuilder.accumulate;
+
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+import org.drools.model.functions.accumulate.AbstractAccumulateFunction;
+
+/**
+ * Factories of approximate accumulate functions taking a bounded amount of memory whatever the number of
+ * accumulated facts, for high-cardinality streams where an exact accumulate would keep every value.
+ * Each function accumulates into a {@link Sketch}, so its error is bounded and its contexts can be combined.
+ * Retracting a fact removes its value from the sketch in place, without recomputing the accumulate from
+ * the remaining facts; the rank error of the quantiles is then relative to the facts accumulated and retracted.
+ */
+public final class SketchAccumulates {
+
+    public static final int DEFAULT_HLL_PRECISION = 12;
+    public static final int DEFAULT_KLL_K = 200;
+
+    private SketchAccumulates() { }
+
+    public static <T> DistinctCount<T> distinctCount(ValueExtractor<T, ?> extractor) {
+        return new DistinctCount<T>(DEFAULT_HLL_PRECISION, extractor);
+    }
+
+    public static <T> DistinctCount<T> distinctCount(int precision, ValueExtractor<T, ?> extractor) {
+        return new DistinctCount<T>(precision, extractor);
+    }
+
+    public static <T> Quantile<T> quantile(double fraction, DoubleExtractor<T> extractor) {
+        return new Quantile<T>(fraction, DEFAULT_KLL_K, null, extractor);
+    }
+
+    public static <T> Quantile<T> quantile(double fraction, int k, DoubleExtractor<T> extractor) {
+        return new Quantile<T>(fraction, k, null, extractor);
+    }
+
+    /**
+     * The sketches of the returned function are all seeded with the given seed, so that its result is repeatable.
+     */
+    public static <T> Quantile<T> quantile(double fraction, int k, long seed, DoubleExtractor<T> extractor) {
+        return new Quantile<T>(fraction, k, seed, extractor);
+    }
+
+    public static <T> Frequencies<T> frequencies(double epsilon, double delta, ValueExtractor<T, ?> extractor) {
+        return new Frequencies<T>(epsilon, delta, extractor);
+    }
+
+    public static class DistinctCount<T> extends AbstractAccumulateFunction<T, HyperLogLog, Long>
+            implements CombinableAccumulateFunction<HyperLogLog> {
+        private final int precision;
+        private final Function<T, ?> extractor;
+
+        public DistinctCount(int precision, Function<T, ?> extractor) {
+            this.precision = precision;
+            this.extractor = extractor;
+        }
+
+        @Override
+        public HyperLogLog init() {
+            return new HyperLogLog(precision);
+        }
+
+        @Override
+        public void action(HyperLogLog acc, T obj) {
+            acc.add(extractor.apply(obj));
+        }
+
+        @Override
+        public void reverse(HyperLogLog acc, T obj) {
+            acc.remove(extractor.apply(obj));
+        }
+
+        @Override
+        public void combine(HyperLogLog target, HyperLogLog partial) {
+            target.merge(partial);
+        }
+
+        @Override
+        public Long result(HyperLogLog acc) {
+            return acc.estimate();
+        }
+    }
+
+    public static class Quantile<T> extends AbstractAccumulateFunction<T, KllSketch, Double>
+            implements CombinableAccumulateFunction<KllSketch> {
+        private final double fraction;
+        private final int k;
+        // null when the sketches are seeded randomly
+        private final Long seed;
+        private final ToDoubleFunction<T> extractor;
+
+        public Quantile(double fraction, int k, Long seed, ToDoubleFunction<T> extractor) {
+            if (fraction < 0 || fraction > 1) {
+                throw new IllegalArgumentException("The fraction of a quantile must be between 0 and 1: " + fraction);
+            }
+            this.fraction = fraction;
+            this.k = k;
+            this.seed = seed;
+            this.extractor = extractor;
+        }
+
+        @Override
+        public KllSketch init() {
+            return seed != null ? new KllSketch(k, seed) : new KllSketch(k);
+        }
+
+        @Override
+        public void action(KllSketch acc, T obj) {
+            acc.add(extractor.applyAsDouble(obj));
+        }
+
+        @Override
+        public void reverse(KllSketch acc, T obj) {
+            acc.remove(extractor.applyAsDouble(obj));
+        }
+
+        @Override
+        public void combine(KllSketch target, KllSketch partial) {
+            target.merge(partial);
+        }
+
+        @Override
+        public Double result(KllSketch acc) {
+            return acc.quantile(fraction);
+        }
+    }
+
+    /**
+     * The result is a snapshot of the sketch, to be queried for the estimated frequency of a value.
+     */
+    public static class Frequencies<T> extends AbstractAccumulateFunction<T, CountMinSketch, CountMinSketch>
+            implements CombinableAccumulateFunction<CountMinSketch> {
+        private final double epsilon;
+        private final double delta;
+        private final Function<T, ?> extractor;
+
+        public Frequencies(double epsilon, double delta, Function<T, ?> extractor) {
+            this.epsilon = epsilon;
+            this.delta = delta;
+            this.extractor = extractor;
+        }
+
+        @Override
+        public CountMinSketch init() {
+            return new CountMinSketch(epsilon, delta);
+        }
+
+        @Override
+        public void action(CountMinSketch acc, T obj) {
+            acc.add(extractor.apply(obj));
+        }
+
+        @Override
+        public void reverse(CountMinSketch acc, T obj) {
+            acc.remove(extractor.apply(obj));
+        }
+
+        @Override
+        public void combine(CountMinSketch target, CountMinSketch partial) {
+            target.merge(partial);
+        }
+
+        @Override
+        public CountMinSketch result(CountMinSketch acc) {
+            return acc.copy();
+        }
+    }
+}
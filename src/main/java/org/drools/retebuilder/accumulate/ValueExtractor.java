@@ -0,0 +1,12 @@
+package org.drools.retebuilder.accumulate;
+
+import java.io.Serializable;
+import java.util.function.Function;
+
+/**
+ * A serializable extractor of a value, so that equal lambdas or method references can be recognized
+ * as the same extractor.
+ */
+@FunctionalInterface
+public interface ValueExtractor<T, R> extends Function<T, R>, Serializable {
+}
@@ -1,5 +1,14 @@
 package org.drools.retebuilder.adapters;
 
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
 import org.drools.core.WorkingMemory;
 import org.drools.core.common.InternalFactHandle;
 import org.drools.core.rule.Declaration;
@@ -7,12 +16,98 @@ import org.drools.core.rule.MultiAccumulate;
 import org.drools.core.rule.Pattern;
 import org.drools.core.spi.Accumulator;
 import org.drools.core.spi.Tuple;
+import org.drools.retebuilder.accumulate.CombinableAccumulateFunction;
+import org.drools.retebuilder.accumulate.ExtractorKey;
+import org.drools.retebuilder.accumulate.FusibleAccumulateFunction;
+import org.drools.retebuilder.constraints.LambdaAccumulator;
 
 public class AccumulateAdapter extends MultiAccumulate {
 
+    /**
+     * The number of facts accumulated in a single evaluation from which they are split across the common
+     * fork-join pool, when all the functions of the accumulate are combinable. The functions and their extractors
+     * are then run by the threads of the pool rather than by the one firing the rules.
+     */
+    public static final int PARALLEL_THRESHOLD = 10000;
+
+    private static final int PARALLEL_CHUNK_SIZE = 2048;
+
+    // the fusible functions grouped by extractor, and the positions of the accumulators that can't be fused
+    private final FusedGroup[] fusedGroups;
+    private final int[] unfusedAccumulators;
+
+    // when all the functions are combinable, the accumulated facts are buffered and folded when the result is read
+    private final boolean combinable;
+
     public AccumulateAdapter(Accumulator[] accumulators) {
 
         super( new Pattern(), new Declaration[0], accumulators );
+
+        Map<List<Object>, FusedGroup> groups = new LinkedHashMap<List<Object>, FusedGroup>();
+        List<Integer> unfused = new ArrayList<Integer>();
+        for ( int i = 0; i < accumulators.length; i++ ) {
+            FusibleAccumulateFunction function = asFusible( accumulators[i] );
+            if ( function == null ) {
+                unfused.add( i );
+                continue;
+            }
+            boolean doubleValued = function instanceof FusibleAccumulateFunction.OfDouble;
+            List<Object> key = Arrays.asList( ExtractorKey.of( function.getExtractor() != null ? function.getExtractor() : FusedGroup.class ),
+                                              doubleValued );
+            FusedGroup group = groups.get( key );
+            if ( group == null ) {
+                group = doubleValued ? new DoubleFusedGroup() : new LongFusedGroup();
+                groups.put( key, group );
+            }
+            group.add( function, i );
+        }
+        this.fusedGroups = groups.values().toArray( new FusedGroup[groups.size()] );
+        this.unfusedAccumulators = unfused.stream().mapToInt( Integer::intValue ).toArray();
+
+        boolean allCombinable = true;
+        for ( Accumulator accumulator : accumulators ) {
+            allCombinable &= asCombinable( accumulator ) != null;
+        }
+        this.combinable = allCombinable;
+    }
+
+    private static CombinableAccumulateFunction asCombinable(Accumulator accumulator) {
+        if ( accumulator instanceof LambdaAccumulator &&
+             ((LambdaAccumulator) accumulator).getAccumulateFunction() instanceof CombinableAccumulateFunction ) {
+            return (CombinableAccumulateFunction) ((LambdaAccumulator) accumulator).getAccumulateFunction();
+        }
+        return null;
+    }
+
+    private static FusibleAccumulateFunction asFusible(Accumulator accumulator) {
+        if ( accumulator instanceof LambdaAccumulator &&
+             ((LambdaAccumulator) accumulator).getAccumulateFunction() instanceof FusibleAccumulateFunction ) {
+            return (FusibleAccumulateFunction) ((LambdaAccumulator) accumulator).getAccumulateFunction();
+        }
+        return null;
+    }
+
+    @Override
+    public Object createContext() {
+        Object[] contexts = (Object[]) super.createContext();
+        if ( !combinable ) {
+            return contexts;
+        }
+        // the facts still to be folded are kept in an extra slot after the ones of the accumulators
+        Object[] contextsWithPending = Arrays.copyOf( contexts, contexts.length + 1, Object[].class );
+        contextsWithPending[contexts.length] = new ArrayList<InternalFactHandle>();
+        return contextsWithPending;
+    }
+
+    @Override
+    public void init(final Object workingMemoryContext,
+                     final Object context,
+                     final Tuple leftTuple,
+                     final WorkingMemory workingMemory) throws Exception {
+        if ( combinable ) {
+            pendingFacts( context ).clear();
+        }
+        super.init( workingMemoryContext, context, leftTuple, workingMemory );
     }
 
     @Override
@@ -21,10 +116,26 @@ public class AccumulateAdapter extends MultiAccumulate {
                            final Tuple leftTuple,
                            final InternalFactHandle handle,
                            final WorkingMemory workingMemory) {
+        if ( combinable ) {
+            pendingFacts( context ).add( handle );
+        } else {
+            accumulateFact( workingMemoryContext, (Object[]) context, leftTuple, handle, workingMemory );
+        }
+    }
+
+    private void accumulateFact(final Object workingMemoryContext,
+                                final Object[] contexts,
+                                final Tuple leftTuple,
+                                final InternalFactHandle handle,
+                                final WorkingMemory workingMemory) {
+        Object fact = handle.getObject();
+        for ( FusedGroup group : fusedGroups ) {
+            group.accumulate( contexts, fact );
+        }
         try {
-            for ( int i = 0; i < this.getAccumulators().length; i++ ) {
+            for ( int i : unfusedAccumulators ) {
                 getAccumulators()[i].accumulate( ((Object[])workingMemoryContext)[i],
-                                                 ((Object[])context)[i],
+                                                 contexts[i],
                                                  leftTuple,
                                                  handle,
                                                  null, // this.requiredDeclarations
@@ -35,4 +146,193 @@ public class AccumulateAdapter extends MultiAccumulate {
             throw new RuntimeException( e );
         }
     }
+
+    @Override
+    public void reverse(final Object workingMemoryContext,
+                        final Object context,
+                        final Tuple leftTuple,
+                        final InternalFactHandle handle,
+                        final WorkingMemory workingMemory) {
+        if ( combinable ) {
+            foldPendingFacts( workingMemoryContext, context, leftTuple, workingMemory );
+        }
+        Object[] contexts = (Object[]) context;
+        Object fact = handle.getObject();
+        for ( FusedGroup group : fusedGroups ) {
+            group.reverse( contexts, fact );
+        }
+        try {
+            for ( int i : unfusedAccumulators ) {
+                getAccumulators()[i].reverse( ((Object[])workingMemoryContext)[i],
+                                              contexts[i],
+                                              leftTuple,
+                                              handle,
+                                              null, // this.requiredDeclarations
+                                              null, // getInnerDeclarationCache(),
+                                              workingMemory );
+            }
+        } catch ( final Exception e ) {
+            throw new RuntimeException( e );
+        }
+    }
+
+    @Override
+    public Object[] getResult(final Object workingMemoryContext,
+                              final Object context,
+                              final Tuple leftTuple,
+                              final WorkingMemory workingMemory) {
+        if ( combinable ) {
+            foldPendingFacts( workingMemoryContext, context, leftTuple, workingMemory );
+        }
+        return super.getResult( workingMemoryContext, context, leftTuple, workingMemory );
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<InternalFactHandle> pendingFacts(Object context) {
+        Object[] contexts = (Object[]) context;
+        return (List<InternalFactHandle>) contexts[contexts.length - 1];
+    }
+
+    /**
+     * Accumulates the buffered facts: a large batch, as the one of an initial load, is split across the common
+     * fork-join pool into partial contexts which are then combined, a small one is accumulated sequentially.
+     */
+    private void foldPendingFacts(Object workingMemoryContext, Object context, Tuple leftTuple, WorkingMemory workingMemory) {
+        List<InternalFactHandle> pending = pendingFacts( context );
+        if ( pending.isEmpty() ) {
+            return;
+        }
+        Object[] contexts = (Object[]) context;
+        if ( pending.size() < PARALLEL_THRESHOLD ) {
+            for ( InternalFactHandle handle : pending ) {
+                accumulateFact( workingMemoryContext, contexts, leftTuple, handle, workingMemory );
+            }
+        } else {
+            Object[] partial = ForkJoinPool.commonPool().invoke(
+                    new FoldTask( workingMemoryContext, leftTuple, workingMemory, pending, 0, pending.size() ) );
+            combine( contexts, partial );
+        }
+        pending.clear();
+    }
+
+    private Object[] newPartialContexts() {
+        Object[] contexts = new Object[getAccumulators().length];
+        for ( int i = 0; i < contexts.length; i++ ) {
+            contexts[i] = getAccumulators()[i].createContext();
+        }
+        return contexts;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void combine(Object[] targets, Object[] partials) {
+        for ( int i = 0; i < partials.length; i++ ) {
+            asCombinable( getAccumulators()[i] ).combine( (Serializable) targets[i], (Serializable) partials[i] );
+        }
+    }
+
+    private class FoldTask extends RecursiveTask<Object[]> {
+        private final Object workingMemoryContext;
+        private final Tuple leftTuple;
+        private final WorkingMemory workingMemory;
+        private final List<InternalFactHandle> handles;
+        private final int from;
+        private final int to;
+
+        private FoldTask(Object workingMemoryContext, Tuple leftTuple, WorkingMemory workingMemory,
+                         List<InternalFactHandle> handles, int from, int to) {
+            this.workingMemoryContext = workingMemoryContext;
+            this.leftTuple = leftTuple;
+            this.workingMemory = workingMemory;
+            this.handles = handles;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Object[] compute() {
+            if ( to - from <= PARALLEL_CHUNK_SIZE ) {
+                Object[] contexts = newPartialContexts();
+                for ( int i = from; i < to; i++ ) {
+                    accumulateFact( workingMemoryContext, contexts, leftTuple, handles.get( i ), workingMemory );
+                }
+                return contexts;
+            }
+            int middle = (from + to) >>> 1;
+            FoldTask right = new FoldTask( workingMemoryContext, leftTuple, workingMemory, handles, middle, to );
+            right.fork();
+            Object[] contexts = new FoldTask( workingMemoryContext, leftTuple, workingMemory, handles, from, middle ).compute();
+            combine( contexts, right.join() );
+            return contexts;
+        }
+    }
+
+    /**
+     * The functions sharing the same extractor: the value is extracted once per fact and accumulated into all of them.
+     */
+    private static abstract class FusedGroup<F extends FusibleAccumulateFunction> {
+        protected F[] functions;
+        protected int[] positions = new int[0];
+
+        private FusedGroup(F[] functions) {
+            this.functions = functions;
+        }
+
+        private void add(F function, int position) {
+            int size = functions.length;
+            functions = Arrays.copyOf( functions, size + 1 );
+            positions = Arrays.copyOf( positions, size + 1 );
+            functions[size] = function;
+            positions[size] = position;
+        }
+
+        abstract void accumulate(Object[] contexts, Object fact);
+
+        abstract void reverse(Object[] contexts, Object fact);
+    }
+
+    private static class LongFusedGroup extends FusedGroup<FusibleAccumulateFunction.OfLong> {
+
+        private LongFusedGroup() {
+            super( new FusibleAccumulateFunction.OfLong[0] );
+        }
+
+        @Override
+        void accumulate(Object[] contexts, Object fact) {
+            long value = functions[0].extractLong( fact );
+            for ( int i = 0; i < functions.length; i++ ) {
+                functions[i].accumulateValue( (Serializable) contexts[positions[i]], value );
+            }
+        }
+
+        @Override
+        void reverse(Object[] contexts, Object fact) {
+            long value = functions[0].extractLong( fact );
+            for ( int i = 0; i < functions.length; i++ ) {
+                functions[i].reverseValue( (Serializable) contexts[positions[i]], value );
+            }
+        }
+    }
+
+    private static class DoubleFusedGroup extends FusedGroup<FusibleAccumulateFunction.OfDouble> {
+
+        private DoubleFusedGroup() {
+            super( new FusibleAccumulateFunction.OfDouble[0] );
+        }
+
+        @Override
+        void accumulate(Object[] contexts, Object fact) {
+            double value = functions[0].extractDouble( fact );
+            for ( int i = 0; i < functions.length; i++ ) {
+                functions[i].accumulateValue( (Serializable) contexts[positions[i]], value );
+            }
+        }
+
+        @Override
+        void reverse(Object[] contexts, Object fact) {
+            double value = functions[0].extractDouble( fact );
+            for ( int i = 0; i < functions.length; i++ ) {
+                functions[i].reverseValue( (Serializable) contexts[positions[i]], value );
+            }
+        }
+    }
 }
@@ -0,0 +1,146 @@
+package org.drools.retebuilder.adapters;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.drools.core.WorkingMemory;
+import org.drools.core.common.InternalFactHandle;
+import org.drools.core.rule.EntryPointId;
+import org.drools.core.spi.KnowledgeHelper;
+import org.drools.core.spi.Tuple;
+import org.drools.model.Drools;
+import org.kie.api.runtime.rule.EntryPoint;
+import org.kie.api.runtime.rule.FactHandle;
+
+/**
+ * Collects the inserts, updates and deletes requested by a consequence, so that they can be applied later
+ * all together in the order they have been requested. Repeated updates of the same fact are coalesced into one,
+ * the updates of a deleted fact are dropped, and a fact inserted and then deleted is neither inserted nor deleted,
+ * while a fact deleted and then inserted again is deleted and then inserted.
+ * The facts updated or deleted are looked up among the ones of the tuple of the activation, as the knowledge helper
+ * does, so that they are found whatever entry point they have been inserted into. Each operation records the entry point
+ * it targets when it is requested, i.e. the one of the matched fact for an update or delete and the default one, as for
+ * the knowledge helper, for an insert or for a fact not matched by the activation, and is then applied there.
+ */
+public class DeferredSideEffects implements Drools {
+
+    private enum OperationType { INSERT, UPDATE, DELETE }
+
+    private final List<Operation> operations = new ArrayList<Operation>();
+
+    private final Map<Object, Operation> pendingInserts = new IdentityHashMap<Object, Operation>();
+    private final Map<Object, Operation> pendingUpdates = new IdentityHashMap<Object, Operation>();
+    private final Set<Object> deleted = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+
+    private final Tuple tuple;
+
+    public DeferredSideEffects(Tuple tuple) {
+        this.tuple = tuple;
+    }
+
+    @Override
+    public void insert(Object object) {
+        if (!pendingInserts.containsKey(object)) {
+            pendingInserts.put(object, addOperation(OperationType.INSERT, object));
+        }
+    }
+
+    @Override
+    public void update(Object object) {
+        // a fact inserted by the same consequence is propagated with its final state anyway
+        if (pendingInserts.containsKey(object) || pendingUpdates.containsKey(object) || deleted.contains(object)) {
+            return;
+        }
+        pendingUpdates.put(object, addOperation(OperationType.UPDATE, object));
+    }
+
+    @Override
+    public void delete(Object object) {
+        Operation insert = pendingInserts.remove(object);
+        if (insert != null) {
+            operations.remove(insert);
+            return;
+        }
+        Operation update = pendingUpdates.remove(object);
+        if (update != null) {
+            operations.remove(update);
+        }
+        if (deleted.add(object)) {
+            addOperation(OperationType.DELETE, object);
+        }
+    }
+
+    public boolean isEmpty() {
+        return operations.isEmpty();
+    }
+
+    public void applyTo(KnowledgeHelper knowledgeHelper) {
+        for (Operation operation : operations) {
+            switch (operation.type) {
+                case INSERT:
+                    knowledgeHelper.insert(operation.object);
+                    break;
+                case UPDATE:
+                    knowledgeHelper.update(operation.object);
+                    break;
+                case DELETE:
+                    knowledgeHelper.delete(operation.object);
+                    break;
+            }
+        }
+    }
+
+    public void applyTo(WorkingMemory wm) {
+        for (Operation operation : operations) {
+            EntryPoint entryPoint = wm.getEntryPoint(operation.entryPointId.getEntryPointId());
+            if (operation.type == OperationType.INSERT) {
+                entryPoint.insert(operation.object);
+                continue;
+            }
+            FactHandle handle = operation.handle != null ? operation.handle : entryPoint.getFactHandle(operation.object);
+            if (handle == null) {
+                continue;
+            }
+            if (operation.type == OperationType.UPDATE) {
+                entryPoint.update(handle, operation.object);
+            } else {
+                entryPoint.delete(handle);
+            }
+        }
+    }
+
+    private Operation addOperation(OperationType type, Object object) {
+        InternalFactHandle handle = type == OperationType.INSERT ? null : matchedHandleOf(object);
+        Operation operation = new Operation(type, object, handle, handle != null ? handle.getEntryPointId() : EntryPointId.DEFAULT);
+        operations.add(operation);
+        return operation;
+    }
+
+    private InternalFactHandle matchedHandleOf(Object object) {
+        for (Tuple t = tuple; t != null; t = t.getParent()) {
+            InternalFactHandle handle = t.getFactHandle();
+            if (handle != null && handle.getObject() == object) {
+                return handle;
+            }
+        }
+        return null;
+    }
+
+    private static class Operation {
+        private final OperationType type;
+        private final Object object;
+        private final FactHandle handle;
+        private final EntryPointId entryPointId;
+
+        private Operation(OperationType type, Object object, FactHandle handle, EntryPointId entryPointId) {
+            this.type = type;
+            this.object = object;
+            this.handle = handle;
+            this.entryPointId = entryPointId;
+        }
+    }
+}
@@ -1,21 +1,82 @@
 package org.drools.retebuilder.adapters;
 
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
 import org.drools.core.WorkingMemory;
+import org.drools.core.common.InternalWorkingMemory;
 import org.drools.core.definitions.rule.impl.RuleImpl;
+import org.drools.core.phreak.PropagationEntry;
+import org.drools.core.reteoo.RuleTerminalNodeLeftTuple;
+import org.drools.core.reteoo.Sink;
+import org.drools.core.reteoo.TerminalNode;
 import org.drools.core.spi.Consequence;
 import org.drools.core.spi.KnowledgeHelper;
+import org.drools.core.spi.Tuple;
+import org.drools.core.util.index.TupleList;
 import org.drools.model.Drools;
 import org.drools.model.Rule;
 import org.drools.model.Variable;
 import org.drools.model.functions.FunctionN;
+import org.drools.retebuilder.BlockingWork;
+import org.drools.retebuilder.CanonicalAgenda;
 import org.drools.retebuilder.CanonicalBuildContext;
+import org.drools.retebuilder.RuleOptions;
+import org.kie.api.event.rule.DefaultAgendaEventListener;
+import org.kie.api.event.rule.MatchCancelledEvent;
+import org.kie.api.event.rule.MatchCreatedEvent;
+import org.kie.api.runtime.rule.Match;
 
 public class RuleImplAdapter extends RuleImpl {
     private final Consequence consequence;
+    private final Function<Object[], ?> activationKey;
 
     public RuleImplAdapter(Rule rule, CanonicalBuildContext context) {
+        this(rule, context, RuleOptions.DEFAULT, null);
+    }
+
+    /**
+     * The blocking executor is required only by a rule whose options make its consequence blocking.
+     */
+    public RuleImplAdapter(Rule rule, CanonicalBuildContext context, RuleOptions options, Executor blockingExecutor) {
+        this(rule, new CanonicalBuildContext[] { context }, options, blockingExecutor);
+    }
+
+    /**
+     * Creates the rule shared by the terminal nodes of the branches of a disjunction, one context per branch:
+     * the consequence resolves the facts of a match through the context of the branch having produced it.
+     */
+    public RuleImplAdapter(Rule rule, CanonicalBuildContext[] contexts, RuleOptions options, Executor blockingExecutor) {
         super(rule.getName());
-        this.consequence = new ConsequenceAdapter(rule.getConsequence(), context);
+        this.activationKey = options.getActivationKey();
+        if (contexts.length == 1) {
+            this.consequence = new ConsequenceAdapter(rule.getConsequence(), contexts[0], options, blockingExecutor);
+        } else {
+            // the parallel firings of all the branches are serialized together, as the ones of a single rule
+            Map<Object, Executor> serialExecutors = new WeakHashMap<Object, Executor>();
+            ConsequenceAdapter[] branchConsequences = new ConsequenceAdapter[contexts.length];
+            for (int i = 0; i < contexts.length; i++) {
+                branchConsequences[i] = new ConsequenceAdapter(rule.getConsequence(), contexts[i], options, blockingExecutor, serialExecutors);
+            }
+            this.consequence = new SubruleConsequence(branchConsequences);
+        }
+    }
+
+    /**
+     * The key by which the pending activations of this rule are coalesced, or null if they are not.
+     */
+    public Function<Object[], ?> getActivationKey() {
+        return activationKey;
     }
 
     @Override
@@ -27,10 +88,38 @@ public class RuleImplAdapter extends RuleImpl {
 
         private final org.drools.model.Consequence consequence;
         private final CanonicalBuildContext context;
+        private final RuleOptions options;
+        private final Executor blockingExecutor;
+        private final boolean parallel;
+        private final Map<Object, Executor> serialExecutors;
+        private final Map<Object, PendingActivations> pendingActivations = new WeakHashMap<Object, PendingActivations>();
 
         public ConsequenceAdapter(org.drools.model.Consequence consequence, CanonicalBuildContext context) {
+            this(consequence, context, RuleOptions.DEFAULT, null);
+        }
+
+        public ConsequenceAdapter(org.drools.model.Consequence consequence, CanonicalBuildContext context, RuleOptions options, Executor blockingExecutor) {
+            this(consequence, context, options, blockingExecutor, new WeakHashMap<Object, Executor>());
+        }
+
+        /**
+         * The serial executors, one per session, are shared by the consequences of the branches of the same rule.
+         */
+        public ConsequenceAdapter(org.drools.model.Consequence consequence, CanonicalBuildContext context, RuleOptions options,
+                                  Executor blockingExecutor, Map<Object, Executor> serialExecutors) {
             this.consequence = consequence;
             this.context = context;
+            this.options = options;
+            this.blockingExecutor = blockingExecutor;
+            this.parallel = options.isParallel() && isSideEffectFree(consequence);
+            this.serialExecutors = serialExecutors;
+        }
+
+        private static boolean isSideEffectFree(org.drools.model.Consequence consequence) {
+            return !consequence.isUsingDrools() &&
+                   consequence.getUpdates().length == 0 &&
+                   consequence.getInserts().length == 0 &&
+                   consequence.getDeletes().length == 0;
         }
 
         @Override
@@ -40,6 +129,22 @@ public class RuleImplAdapter extends RuleImpl {
 
         @Override
         public void evaluate(KnowledgeHelper knowledgeHelper, WorkingMemory workingMemory) throws Exception {
+            if (options.getActivationKey() != null && isSuperseded(knowledgeHelper, options.getActivationKey())) {
+                ((CanonicalAgenda) ((InternalWorkingMemory) workingMemory).getAgenda()).supersededFiring();
+                return;
+            }
+            if (options.isBlocking()) {
+                evaluateBlocking(knowledgeHelper, (InternalWorkingMemory) workingMemory);
+                return;
+            }
+            if (options.isDeferredSideEffects()) {
+                evaluateDeferred(knowledgeHelper);
+                return;
+            }
+            if (parallel) {
+                evaluateParallel(knowledgeHelper, workingMemory);
+                return;
+            }
             Variable[] consequenceDeclarations = consequence.getDeclarations();
             Object[] objs = knowledgeHelper.getTuple().toObjects();
 
@@ -75,6 +180,264 @@ public class RuleImplAdapter extends RuleImpl {
                 knowledgeHelper.delete(deletedFact);
             }
         }
+
+        /**
+         * Runs the block collecting all its side effects, which are then applied at once, coalesced,
+         * through the knowledge helper of the firing activation.
+         */
+        private void evaluateDeferred(KnowledgeHelper knowledgeHelper) {
+            DeferredSideEffects sideEffects = new DeferredSideEffects(knowledgeHelper.getTuple());
+            Object[] objs = knowledgeHelper.getTuple().toObjects();
+            Object[] facts = resolveFacts(objs, sideEffects);
+
+            consequence.getBlock().execute(facts);
+
+            collectSideEffects(objs, facts, sideEffects);
+            sideEffects.applyTo(knowledgeHelper);
+        }
+
+        /**
+         * Checks if a later activation of the same rule, with the same key of the firing one, is still pending
+         * in the agenda item of the rule, which has already removed the firing one from its list.
+         */
+        private boolean isSuperseded(KnowledgeHelper knowledgeHelper, Function<Object[], ?> activationKey) {
+            RuleTerminalNodeLeftTuple firing = (RuleTerminalNodeLeftTuple) knowledgeHelper.getMatch();
+            InternalWorkingMemory wm = (InternalWorkingMemory) knowledgeHelper.getWorkingMemory();
+            PendingActivations index;
+            synchronized (pendingActivations) {
+                index = pendingActivations.get(wm);
+                if (index == null) {
+                    TupleList pending = firing.getRuleAgendaItem().getRuleExecutor().getLeftTupleList();
+                    if (pending.isEmpty()) {
+                        return false;
+                    }
+                    index = new PendingActivations(firing, pending, activationKey);
+                    pendingActivations.put(wm, index);
+                    wm.addEventListener(index);
+                }
+            }
+            return index.isSuperseded(firing);
+        }
+
+        private Object activationKeyOf(Tuple tuple, Function<Object[], ?> activationKey) {
+            return activationKey.apply(resolveFacts(tuple.toObjects(), null));
+        }
+
+        /**
+         * The pending activations of the terminal node of this consequence in a session, indexed by key.
+         * The index is built from the pending list of the rule the first time it is needed, then kept up to date
+         * as a listener of the agenda of the session: an activation is indexed when created and removed when
+         * cancelled or fired. A queued activation updated in place stays indexed by its former key, so an indexed
+         * activation supersedes the firing one only if it is still queued and its current key is the same.
+         */
+        private class PendingActivations extends DefaultAgendaEventListener {
+            private final Sink terminalNode;
+            private final Function<Object[], ?> activationKey;
+            private final Map<Object, Set<Tuple>> activationsByKey = new HashMap<Object, Set<Tuple>>();
+            private final Map<Tuple, Object> keys = new IdentityHashMap<Tuple, Object>();
+
+            private PendingActivations(RuleTerminalNodeLeftTuple firing, TupleList pending, Function<Object[], ?> activationKey) {
+                this.terminalNode = firing.getTupleSink();
+                this.activationKey = activationKey;
+                for (Tuple tuple = pending.getFirst(); tuple != null; tuple = tuple.getNext()) {
+                    if (tuple.getTupleSink() == terminalNode) {
+                        add(tuple);
+                    }
+                }
+            }
+
+            @Override
+            public void matchCreated(MatchCreatedEvent event) {
+                if (isOfTerminalNode(event.getMatch())) {
+                    add((Tuple) event.getMatch());
+                }
+            }
+
+            @Override
+            public void matchCancelled(MatchCancelledEvent event) {
+                if (isOfTerminalNode(event.getMatch())) {
+                    remove((Tuple) event.getMatch());
+                }
+            }
+
+            private boolean isOfTerminalNode(Match match) {
+                return match instanceof RuleTerminalNodeLeftTuple && ((Tuple) match).getTupleSink() == terminalNode;
+            }
+
+            private void add(Tuple tuple) {
+                remove(tuple);
+                Object key = activationKeyOf(tuple, activationKey);
+                keys.put(tuple, key);
+                activationsByKey.computeIfAbsent(key, k -> Collections.newSetFromMap(new IdentityHashMap<Tuple, Boolean>())).add(tuple);
+            }
+
+            private void remove(Tuple tuple) {
+                if (!keys.containsKey(tuple)) {
+                    return;
+                }
+                Object key = keys.remove(tuple);
+                Set<Tuple> sameKey = activationsByKey.get(key);
+                sameKey.remove(tuple);
+                if (sameKey.isEmpty()) {
+                    activationsByKey.remove(key);
+                }
+            }
+
+            private boolean isSuperseded(RuleTerminalNodeLeftTuple firing) {
+                remove(firing);
+                Object key = activationKeyOf(firing, activationKey);
+                Set<Tuple> sameKey = activationsByKey.get(key);
+                if (sameKey != null) {
+                    for (Tuple pending : sameKey) {
+                        if (((RuleTerminalNodeLeftTuple) pending).isQueued() && Objects.equals(key, activationKeyOf(pending, activationKey))) {
+                            return true;
+                        }
+                    }
+                }
+                return false;
+            }
+        }
+
+        private Object[] resolveFacts(Object[] objs, Drools drools) {
+            Variable[] consequenceDeclarations = consequence.getDeclarations();
+            Object[] facts;
+            int i = 0;
+            if (consequence.isUsingDrools()) {
+                facts = new Object[consequenceDeclarations.length+1];
+                facts[0] = drools;
+                i++;
+            } else {
+                facts = new Object[consequenceDeclarations.length];
+            }
+
+            for (int j = 0; j < consequenceDeclarations.length; i++, j++) {
+                facts[i] = context.getVariableMapper(consequenceDeclarations[j]).getFact(objs);
+            }
+            return facts;
+        }
+
+        private void collectSideEffects(Object[] objs, Object[] facts, DeferredSideEffects sideEffects) {
+            for (org.drools.model.Consequence.Update update : consequence.getUpdates()) {
+                sideEffects.update(context.getVariableMapper(update.getUpdatedVariable()).getFact(objs));
+            }
+            for (FunctionN insert : consequence.getInserts()) {
+                sideEffects.insert(insert.apply(facts));
+            }
+            for (Variable delete : consequence.getDeletes()) {
+                sideEffects.delete(context.getVariableMapper(delete).getFact(objs));
+            }
+        }
+
+        /**
+         * The facts are resolved from the tuple by the firing thread, then the block runs on the fork-join pool
+         * after the previous firings of this rule in the same session, as blocking work awaited by its fireAllRules.
+         */
+        private void evaluateParallel(KnowledgeHelper knowledgeHelper, WorkingMemory wm) {
+            Object[] facts = resolveFacts(knowledgeHelper.getTuple().toObjects(), null);
+            BlockingWork.submit( wm, serialExecutorOf( wm ), () -> {
+                consequence.getBlock().execute(facts);
+                return null;
+            } );
+        }
+
+        private Executor serialExecutorOf(WorkingMemory wm) {
+            synchronized (serialExecutors) {
+                Executor executor = serialExecutors.get( wm );
+                if (executor == null) {
+                    executor = new SerialExecutor( ForkJoinPool.commonPool() );
+                    serialExecutors.put( wm, executor );
+                }
+                return executor;
+            }
+        }
+
+        /**
+         * The facts are resolved from the tuple by the firing thread, then the block runs on the blocking executor.
+         * Its inserts, updates and deletes are collected and applied by a propagation entry executed by the engine thread.
+         */
+        private void evaluateBlocking(KnowledgeHelper knowledgeHelper, InternalWorkingMemory wm) {
+            DeferredSideEffects sideEffects = new DeferredSideEffects(knowledgeHelper.getTuple());
+            Object[] objs = knowledgeHelper.getTuple().toObjects();
+            Object[] facts = resolveFacts(objs, sideEffects);
+
+            BlockingWork.submit( wm, blockingExecutor, () -> {
+                consequence.getBlock().execute(facts);
+                collectSideEffects(objs, facts, sideEffects);
+                if (!sideEffects.isEmpty()) {
+                    wm.addPropagation( new SideEffectsEntry( sideEffects ) );
+                }
+                return null;
+            } );
+        }
+    }
+
+    /**
+     * Runs the submitted tasks one at a time, in submission order, on the given executor.
+     */
+    private static class SerialExecutor implements Executor {
+        private final Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+        private final Executor executor;
+        private Runnable active;
+
+        private SerialExecutor(Executor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public synchronized void execute(Runnable task) {
+            tasks.add( () -> {
+                try {
+                    task.run();
+                } finally {
+                    scheduleNext();
+                }
+            } );
+            if (active == null) {
+                scheduleNext();
+            }
+        }
+
+        private synchronized void scheduleNext() {
+            active = tasks.poll();
+            if (active != null) {
+                executor.execute( active );
+            }
+        }
+    }
+
+    /**
+     * Dispatches a firing to the consequence of the branch whose terminal node produced the match.
+     */
+    private static class SubruleConsequence implements Consequence {
+        private final ConsequenceAdapter[] branchConsequences;
+
+        private SubruleConsequence(ConsequenceAdapter[] branchConsequences) {
+            this.branchConsequences = branchConsequences;
+        }
+
+        @Override
+        public String getName() {
+            return RuleImpl.DEFAULT_CONSEQUENCE_NAME;
+        }
+
+        @Override
+        public void evaluate(KnowledgeHelper knowledgeHelper, WorkingMemory workingMemory) throws Exception {
+            TerminalNode terminalNode = (TerminalNode) knowledgeHelper.getTuple().getTupleSink();
+            branchConsequences[terminalNode.getSubruleIndex()].evaluate(knowledgeHelper, workingMemory);
+        }
+    }
+
+    private static class SideEffectsEntry extends PropagationEntry.AbstractPropagationEntry {
+        private final DeferredSideEffects sideEffects;
+
+        private SideEffectsEntry(DeferredSideEffects sideEffects) {
+            this.sideEffects = sideEffects;
+        }
+
+        @Override
+        public void execute(InternalWorkingMemory wm) {
+            sideEffects.applyTo(wm);
+        }
     }
 
     public static class DroolsImpl implements Drools {
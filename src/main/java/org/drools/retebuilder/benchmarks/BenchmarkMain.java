@@ -16,13 +16,27 @@
 
 package org.drools.retebuilder.benchmarks;
 
-import org.kie.api.KieBase;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
 
+/**
+ * Without arguments builds a kie base from a generated kjar, otherwise runs the benchmarks whose
+ * names match the given ones, e.g. BulkLoadBenchmark or PartitionedSessionBenchmark.
+ */
 public class BenchmarkMain {
 
-    public static void main( String[] args ) {
-        BuildFromKJarBenchmark benchmark = new BuildFromKJarBenchmark(10000, 100, true);
-        benchmark.setUpKJar();
-        KieBase kieBase = benchmark.buildKnowledge( null );
+    public static void main( String[] args ) throws RunnerException {
+        if (args.length == 0) {
+            BuildFromKJarBenchmark benchmark = new BuildFromKJarBenchmark(10000, 100, true);
+            benchmark.setUpKJar();
+            benchmark.buildKnowledge( null );
+            return;
+        }
+        OptionsBuilder options = new OptionsBuilder();
+        for (String benchmarkName : args) {
+            options.include( benchmarkName );
+        }
+        new Runner( options.forks( 1 ).build() ).run();
     }
 }
@@ -0,0 +1,90 @@
+package org.drools.retebuilder.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.drools.model.Rule;
+import org.drools.model.Variable;
+import org.drools.model.datasources.DataStore;
+import org.drools.retebuilder.CanonicalKieBase;
+import org.kie.api.runtime.KieSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static org.drools.model.DSL.*;
+import static org.drools.retebuilder.DataSourceBinder.bindDataSource;
+
+/**
+ * Measures the time needed to load a {@link DataStore} into a session against the number of threads
+ * used to evaluate the alpha network. A parallelism of 1 is the plain sequential insertion.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BulkLoadBenchmark {
+
+    @Param({"1000000"})
+    private int numberOfFacts;
+
+    @Param({"20"})
+    private int numberOfRules;
+
+    @Param({"1", "2", "4", "8"})
+    private int parallelism;
+
+    private CanonicalKieBase kieBase;
+    private DataStore persons;
+    private KieSession ksession;
+
+    @Setup
+    public void setUp() {
+        kieBase = new CanonicalKieBase();
+        for (int i = 0; i < numberOfRules; i++) {
+            kieBase.addRule( getRule( i ) );
+        }
+
+        List<Person> list = new ArrayList<>();
+        for (int i = 0; i < numberOfFacts; i++) {
+            list.add( new Person( "Person" + i, i % 100, "Town" + ( i % numberOfRules ) ) );
+        }
+        persons = storeOf( list.toArray() );
+    }
+
+    private Rule getRule(int ruleIndex) {
+        Variable<Person> person = any( Person.class );
+        String town = "Town" + ruleIndex;
+        return rule( "R" + ruleIndex )
+                .view(
+                        input( person, "persons" ),
+                        expr( person, p -> p.getTown().equals( town ) && p.getName().hashCode() % 7 == 0 ),
+                        expr( person, p -> p.getAge() > 50 )
+                     )
+                .then( on( person ).execute( p -> { } ) );
+    }
+
+    @Benchmark
+    public KieSession load() {
+        ksession = kieBase.newKieSession();
+        bindDataSource( ksession, "persons", persons, parallelism );
+        return ksession;
+    }
+
+    @TearDown(Level.Invocation)
+    public void disposeSession() {
+        ksession.dispose();
+        ksession = null;
+    }
+}
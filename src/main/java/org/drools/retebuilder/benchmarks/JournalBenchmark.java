@@ -0,0 +1,189 @@
+package org.drools.retebuilder.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.drools.model.Rule;
+import org.drools.model.Variable;
+import org.drools.model.datasources.DataStream;
+import org.drools.retebuilder.CanonicalKieBase;
+import org.drools.retebuilder.datasources.DataStreamJournal;
+import org.drools.retebuilder.datasources.JournalCodec;
+import org.kie.api.runtime.KieSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static org.drools.model.DSL.*;
+import static org.drools.retebuilder.DataSourceBinder.bindDataSource;
+
+/**
+ * Compares the cost of sending an event to a stream with and without journaling it,
+ * and measures the time needed to recover a session replaying a journal.
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+public class JournalBenchmark {
+
+    @Param({"100000"})
+    private int journaledEvents;
+
+    private CanonicalKieBase kieBase;
+    private Path journalDir;
+    private Path recoveryDir;
+
+    private KieSession ksession;
+    private DataStream stream;
+    private DataStreamJournal<Object> journal;
+
+    private final Person event = new Person( "Mark", 37, "London" );
+
+    @Setup(Level.Trial)
+    public void setUpKieBase() throws IOException {
+        Variable<Person> person = any( Person.class );
+        Rule rule = rule( "R" )
+                .view(
+                        subscribe( person, "persons" ),
+                        expr( person, p -> p.getAge() > 50 )
+                     )
+                .then( on( person ).execute( p -> { } ) );
+
+        kieBase = new CanonicalKieBase();
+        kieBase.addRules( rule );
+
+        recoveryDir = Files.createTempDirectory( "journal-recovery" );
+        try (DataStreamJournal<Object> recoveryJournal = new DataStreamJournal<Object>( recoveryDir, new PersonCodec() )) {
+            for (int i = 0; i < journaledEvents; i++) {
+                recoveryJournal.append( new Person( "Person" + i, i % 100, "Town" + ( i % 10 ) ) );
+            }
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpSession() throws IOException {
+        journalDir = Files.createTempDirectory( "journal" );
+        journal = new DataStreamJournal<Object>( journalDir, new PersonCodec() );
+        ksession = kieBase.newKieSession();
+        stream = newDataStream();
+        bound = false;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDownSession() {
+        journal.close();
+        ksession.dispose();
+        deleteDir( journalDir );
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownKieBase() {
+        deleteDir( recoveryDir );
+    }
+
+    /**
+     * The session recovered by a single invocation of {@link #recovery(RecoveredSession)}.
+     */
+    @State(Scope.Thread)
+    public static class RecoveredSession {
+        private KieSession ksession;
+
+        @TearDown(Level.Invocation)
+        public void dispose() {
+            if (ksession != null) {
+                ksession.dispose();
+                ksession = null;
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void sendWithoutJournal() {
+        bindOnce( false );
+        stream.send( event );
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void sendWithJournal() {
+        bindOnce( true );
+        stream.send( event );
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public KieSession recovery( RecoveredSession recovered ) {
+        recovered.ksession = kieBase.newKieSession();
+        try (DataStreamJournal<Object> recoveryJournal = new DataStreamJournal<Object>( recoveryDir, new PersonCodec() )) {
+            bindDataSource( recovered.ksession, "persons", newDataStream(), recoveryJournal );
+        }
+        recovered.ksession.fireAllRules();
+        return recovered.ksession;
+    }
+
+    private boolean bound = false;
+
+    private void bindOnce( boolean journaled ) {
+        if (!bound) {
+            if (journaled) {
+                bindDataSource( ksession, "persons", stream, journal );
+            } else {
+                bindDataSource( ksession, "persons", stream );
+            }
+            bound = true;
+        }
+    }
+
+    private static void deleteDir( Path dir ) {
+        try (Stream<Path> files = Files.list( dir )) {
+            files.forEach( file -> file.toFile().delete() );
+            Files.delete( dir );
+        } catch (IOException e) {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    public static class PersonCodec implements JournalCodec<Object> {
+        @Override
+        public byte[] encode( Object event ) {
+            Person p = (Person) event;
+            byte[] name = p.getName().getBytes( StandardCharsets.UTF_8 );
+            byte[] town = p.getTown().getBytes( StandardCharsets.UTF_8 );
+            return ByteBuffer.allocate( 12 + name.length + town.length )
+                             .putInt( p.getAge() )
+                             .putInt( name.length ).put( name )
+                             .putInt( town.length ).put( town )
+                             .array();
+        }
+
+        @Override
+        public Object decode( byte[] record ) {
+            ByteBuffer buffer = ByteBuffer.wrap( record );
+            int age = buffer.getInt();
+            byte[] name = new byte[buffer.getInt()];
+            buffer.get( name );
+            byte[] town = new byte[buffer.getInt()];
+            buffer.get( town );
+            return new Person( new String( name, StandardCharsets.UTF_8 ), age, new String( town, StandardCharsets.UTF_8 ) );
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.drools.retebuilder.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.drools.model.Rule;
+import org.drools.model.Variable;
+import org.drools.model.datasources.DataStore;
+import org.drools.retebuilder.CanonicalKieBase;
+import org.drools.retebuilder.PartitionedKieSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static org.drools.model.DSL.*;
+
+/**
+ * Measures the time needed to load and fire a {@link DataStore} of facts joined by town against the number
+ * of partitions of a {@link PartitionedKieSession} keyed by town. A single partition is the unpartitioned baseline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PartitionedSessionBenchmark {
+
+    @Param({"200000"})
+    private int numberOfFacts;
+
+    @Param({"64"})
+    private int numberOfTowns;
+
+    @Param({"1", "2", "4", "8"})
+    private int partitions;
+
+    private CanonicalKieBase kieBase;
+    private DataStore persons;
+    private PartitionedKieSession session;
+
+    @Setup(Level.Trial)
+    public void setUpKieBase() {
+        Variable<Person> older = any( Person.class );
+        Variable<Person> younger = any( Person.class );
+        Rule rule = rule( "R" )
+                .view(
+                        input( older, "persons" ),
+                        input( younger, "persons" ),
+                        expr( older, younger, (p1, p2) -> p1.getTown().equals( p2.getTown() ) && p1.getAge() > p2.getAge() + 98 )
+                     )
+                .then( on( older, younger ).execute( (p1, p2) -> { } ) );
+
+        kieBase = new CanonicalKieBase();
+        kieBase.addRules( rule );
+
+        List<Person> list = new ArrayList<>();
+        for (int i = 0; i < numberOfFacts; i++) {
+            list.add( new Person( "Person" + i, i % 100, "Town" + ( i % numberOfTowns ) ) );
+        }
+        persons = storeOf( list.toArray() );
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpSession() {
+        session = new PartitionedKieSession( kieBase, partitions, p -> ((Person) p).getTown() );
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDownSession() {
+        session.dispose();
+    }
+
+    @Benchmark
+    public int loadAndFire() {
+        session.bindDataSource( "persons", persons );
+        return session.fireAllRules();
+    }
+}
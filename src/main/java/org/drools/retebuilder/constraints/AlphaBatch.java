@@ -0,0 +1,139 @@
+package org.drools.retebuilder.constraints;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.drools.core.common.InternalFactHandle;
+
+/**
+ * The outcomes of the alpha constraints of an entry point precomputed in parallel for a window of objects.
+ * A batch belongs to a single load and is active only on the thread performing the load: while it is active
+ * {@link LambdaConstraint#isAllowed}, invoked by that thread, reads the outcome for the object being inserted
+ * instead of evaluating its predicate again, while concurrent loads, even through the same constraints,
+ * read their own batches. This is correct only because alpha constraints are side-effect free.
+ */
+public class AlphaBatch {
+
+    static final int UNKNOWN = 0;
+    static final int ALLOWED = 1;
+    static final int REJECTED = 2;
+
+    private static final int CHUNK_SIZE = 1024;
+
+    private static final ThreadLocal<AlphaBatch> ACTIVE = new ThreadLocal<AlphaBatch>();
+    // spares the lookup of the thread local to the constraints evaluated while no load is running
+    private static final AtomicInteger ACTIVE_COUNT = new AtomicInteger();
+
+    private final Map<LambdaConstraint, Integer> slots = new IdentityHashMap<LambdaConstraint, Integer>();
+    private final LambdaConstraint[] constraints;
+    private final Class<?>[] types;
+
+    private Object[] objects;
+    private int size;
+    private byte[] verdicts;
+    private int cursor = -1;
+    private AlphaBatch previous;
+
+    public AlphaBatch(Map<LambdaConstraint, Class<?>> alphaConstraints) {
+        this.constraints = new LambdaConstraint[alphaConstraints.size()];
+        this.types = new Class<?>[alphaConstraints.size()];
+        int i = 0;
+        for (Map.Entry<LambdaConstraint, Class<?>> entry : alphaConstraints.entrySet()) {
+            constraints[i] = entry.getKey();
+            types[i] = entry.getValue();
+            slots.put( entry.getKey(), i++ );
+        }
+    }
+
+    public boolean isEmpty() {
+        return constraints.length == 0;
+    }
+
+    public void evaluate(List<?> window, ForkJoinPool pool) {
+        this.objects = window.toArray();
+        this.size = objects.length;
+        int required = size * constraints.length;
+        if (verdicts == null || verdicts.length < required) {
+            verdicts = new byte[required];
+        }
+        pool.invoke( new EvaluationTask( 0, size ) );
+    }
+
+    public void moveTo(int position) {
+        this.cursor = position;
+    }
+
+    public void activate() {
+        previous = ACTIVE.get();
+        ACTIVE.set( this );
+        ACTIVE_COUNT.incrementAndGet();
+    }
+
+    public void deactivate() {
+        ACTIVE_COUNT.decrementAndGet();
+        if (previous != null) {
+            ACTIVE.set( previous );
+            previous = null;
+        } else {
+            ACTIVE.remove();
+        }
+    }
+
+    static AlphaBatch active() {
+        return ACTIVE_COUNT.get() == 0 ? null : ACTIVE.get();
+    }
+
+    int getVerdict(LambdaConstraint constraint, InternalFactHandle handle) {
+        Integer slot = slots.get( constraint );
+        if (slot == null || cursor < 0 || cursor >= size || objects[cursor] != handle.getObject()) {
+            return UNKNOWN;
+        }
+        return verdicts[cursor * constraints.length + slot];
+    }
+
+    private void evaluate(int from, int to) {
+        for (int i = from; i < to; i++) {
+            Object object = objects[i];
+            int offset = i * constraints.length;
+            for (int j = 0; j < constraints.length; j++) {
+                verdicts[offset + j] = evaluate( j, object );
+            }
+        }
+    }
+
+    private byte evaluate(int slot, Object object) {
+        if (!types[slot].isInstance( object )) {
+            return UNKNOWN;
+        }
+        try {
+            return constraints[slot].getEvaluator().evaluate( object ) ? (byte) ALLOWED : (byte) REJECTED;
+        } catch (RuntimeException e) {
+            // leave it to the sequential insertion to evaluate and report the failure
+            return UNKNOWN;
+        }
+    }
+
+    private class EvaluationTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+
+        private EvaluationTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK_SIZE) {
+                evaluate( from, to );
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll( new EvaluationTask( from, middle ), new EvaluationTask( middle, to ) );
+            }
+        }
+    }
+}
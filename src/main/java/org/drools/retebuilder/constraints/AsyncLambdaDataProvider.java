@@ -0,0 +1,71 @@
+package org.drools.retebuilder.constraints;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import org.drools.core.common.InternalWorkingMemory;
+import org.drools.core.spi.PropagationContext;
+import org.drools.core.spi.Tuple;
+import org.drools.model.InvokerPattern;
+import org.drools.retebuilder.InvokerOptions;
+import org.drools.retebuilder.nodes.AsyncInvokerNode;
+import org.drools.retebuilder.nodes.PhreakAsyncInvokerNode;
+
+import static org.drools.retebuilder.constraints.EvaluationUtil.getInvocationArgs;
+
+/**
+ * Data provider of an invoker whose function returns a {@link CompletionStage}: the bound variable
+ * is the completed stage, so constraints and consequences can read its value without blocking.
+ */
+public class AsyncLambdaDataProvider<T> extends LambdaDataProvider<T> {
+
+    private AsyncInvokerNode invokerNode;
+
+    public AsyncLambdaDataProvider(InvokerPattern<T> pattern, InvokerOptions options) {
+        super(pattern, options);
+    }
+
+    public static boolean isAsync(InvokerPattern<?> pattern) {
+        return !pattern.isMultiValue() && CompletionStage.class.isAssignableFrom( pattern.getPatternVariable().getType().asClass() );
+    }
+
+    public void setInvokerNode(AsyncInvokerNode invokerNode) {
+        this.invokerNode = invokerNode;
+    }
+
+    @Override
+    public Object createContext() {
+        return new PhreakAsyncInvokerNode(invokerNode, createInvoker());
+    }
+
+    /**
+     * Creates the invoker used by a single session.
+     */
+    protected PhreakAsyncInvokerNode.AsyncInvoker createInvoker() {
+        return (args, wm) -> ((CompletionStage<?>) invoke( args )).toCompletableFuture();
+    }
+
+    /**
+     * An invoker whose future completes with the plain result of the invoked function, so that the bound variable
+     * is that result rather than the future itself.
+     */
+    protected abstract class ValueInvoker implements PhreakAsyncInvokerNode.AsyncInvoker {
+
+        @Override
+        public Iterator<?> getResults(CompletableFuture<?> completed) {
+            Object result = completed.join();
+            if (pattern.isMultiValue()) {
+                return resultsIterator( result, options.getResultsLimit() );
+            } else {
+                return Collections.singletonList( result ).iterator();
+            }
+        }
+    }
+
+    @Override
+    public Iterator getResults( Tuple tuple, InternalWorkingMemory wm, PropagationContext ctx, Object providerContext ) {
+        return ((PhreakAsyncInvokerNode) providerContext).getResults( tuple, getInvocationArgs(argsPos, null, tuple), ctx, wm );
+    }
+}
@@ -0,0 +1,80 @@
+package org.drools.retebuilder.constraints;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import org.drools.core.common.InternalWorkingMemory;
+import org.drools.core.phreak.PropagationEntry;
+import org.drools.model.InvokerPattern;
+import org.drools.retebuilder.InvokerOptions;
+import org.drools.retebuilder.nodes.PhreakAsyncInvokerNode;
+
+/**
+ * Data provider of an invoker registered with a batch function: instead of invoking the function once per left tuple,
+ * the arguments of all the tuples reaching the node during the same evaluation are collected and passed to a single
+ * call of the batch function, which is executed by a propagation entry queued when the first tuple is collected.
+ * The results are then staged back into the network in the same way as the ones of an asynchronous invoker.
+ */
+public class BatchedLambdaDataProvider<T> extends AsyncLambdaDataProvider<T> {
+
+    private final Function<List<Object[]>, List<?>> batchFunction;
+
+    public BatchedLambdaDataProvider(InvokerPattern<T> pattern, InvokerOptions options) {
+        super(pattern, options);
+        this.batchFunction = options.getBatchFunction();
+    }
+
+    @Override
+    protected PhreakAsyncInvokerNode.AsyncInvoker createInvoker() {
+        return new BatchInvoker();
+    }
+
+    private class BatchInvoker extends ValueInvoker {
+
+        private List<Object[]> pendingArgs = new ArrayList<Object[]>();
+        private List<CompletableFuture<Object>> pendingResults = new ArrayList<CompletableFuture<Object>>();
+
+        @Override
+        public CompletableFuture<?> invoke(Object[] args, InternalWorkingMemory wm) {
+            CompletableFuture<Object> result = new CompletableFuture<Object>();
+            if (pendingArgs.isEmpty()) {
+                wm.addPropagation( new FlushEntry() );
+            }
+            pendingArgs.add( args );
+            pendingResults.add( result );
+            return result;
+        }
+
+        private void flush() {
+            List<Object[]> args = pendingArgs;
+            List<CompletableFuture<Object>> results = pendingResults;
+            pendingArgs = new ArrayList<Object[]>();
+            pendingResults = new ArrayList<CompletableFuture<Object>>();
+
+            List<?> values;
+            try {
+                values = batchFunction.apply( args );
+                if (values.size() != args.size()) {
+                    throw new RuntimeException( "The batch function returned " + values.size() + " results for " + args.size() + " invocations" );
+                }
+            } catch (RuntimeException e) {
+                for (CompletableFuture<Object> result : results) {
+                    result.completeExceptionally( e );
+                }
+                throw e;
+            }
+            for (int i = 0; i < values.size(); i++) {
+                results.get(i).complete( values.get(i) );
+            }
+        }
+
+        private class FlushEntry extends PropagationEntry.AbstractPropagationEntry {
+            @Override
+            public void execute(InternalWorkingMemory wm) {
+                flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package org.drools.retebuilder.constraints;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import org.drools.core.common.InternalWorkingMemory;
+import org.drools.model.InvokerPattern;
+import org.drools.retebuilder.BlockingWork;
+import org.drools.retebuilder.InvokerOptions;
+import org.drools.retebuilder.nodes.PhreakAsyncInvokerNode;
+
+/**
+ * Data provider of an invoker whose function blocks: the function is run on the blocking executor of the kie base,
+ * while the firing thread goes on, and its result is staged back into the network as the one of an asynchronous invoker.
+ */
+public class BlockingLambdaDataProvider<T> extends AsyncLambdaDataProvider<T> {
+
+    private final Executor executor;
+
+    public BlockingLambdaDataProvider(InvokerPattern<T> pattern, InvokerOptions options, Executor executor) {
+        super(pattern, options);
+        this.executor = executor;
+    }
+
+    @Override
+    protected PhreakAsyncInvokerNode.AsyncInvoker createInvoker() {
+        return new ValueInvoker() {
+            @Override
+            public CompletableFuture<?> invoke(Object[] args, InternalWorkingMemory wm) {
+                return BlockingWork.submit( wm, executor, () -> BlockingLambdaDataProvider.this.invoke( args ) );
+            }
+        };
+    }
+}
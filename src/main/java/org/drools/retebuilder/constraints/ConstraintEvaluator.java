@@ -1,5 +1,7 @@
 package org.drools.retebuilder.constraints;
 
+import java.util.Arrays;
+
 import org.drools.core.common.InternalFactHandle;
 import org.drools.core.spi.Tuple;
 import org.drools.model.Index;
@@ -19,15 +21,26 @@ public class ConstraintEvaluator {
     private final int[] argsPos;
 
     public ConstraintEvaluator(Pattern pattern, SingleConstraint constraint) {
+        this(constraint, findArgsPos(pattern, constraint.getVariables()));
+    }
+
+    /**
+     * Creates an evaluator reading its arguments at the given positions of the left tuple, -1 standing for the right fact.
+     */
+    public ConstraintEvaluator(SingleConstraint constraint, int[] argsPos) {
         this.id = constraint.getExprId();
         this.predicate = constraint.getPredicate();
         this.index = constraint.getIndex();
         this.reactiveProps = constraint.getReactiveProps();
-        this.argsPos = findArgsPos(pattern, constraint.getVariables());
+        this.argsPos = argsPos;
     }
 
     public boolean evaluate(InternalFactHandle handle) {
-        return predicate.test(handle.getObject());
+        return evaluate(handle.getObject());
+    }
+
+    public boolean evaluate(Object fact) {
+        return predicate.test(fact);
     }
 
     public boolean evaluate(InternalFactHandle handle, Tuple tuple) {
@@ -38,15 +51,24 @@ public class ConstraintEvaluator {
         return index;
     }
 
+    public int[] getArgsPos() {
+        return argsPos;
+    }
+
+    /**
+     * The same expression reading its arguments from different positions of the tuple is a different constraint,
+     * so two evaluators are equal, and their nodes shared, only if they also have the same argument positions.
+     */
     @Override
     public boolean equals(Object other) {
         if (this == other) return true;
         if (other == null || getClass() != other.getClass()) return false;
-        return id.equals(((ConstraintEvaluator) other).id);
+        ConstraintEvaluator otherEvaluator = (ConstraintEvaluator) other;
+        return id.equals(otherEvaluator.id) && Arrays.equals(argsPos, otherEvaluator.argsPos);
     }
 
     @Override
     public int hashCode() {
-        return id.hashCode();
+        return 31 * id.hashCode() + Arrays.hashCode(argsPos);
     }
 }
@@ -0,0 +1,154 @@
+package org.drools.retebuilder.constraints;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A bounded cache of the results of an invoker function keyed by a value extracted from its invocation arguments.
+ * The key must be immutable, so the extractor has to copy the relevant values out of mutable facts: by default
+ * the arguments themselves are the key, which is correct only when they are immutable values.
+ * The least recently used entry is evicted when the cache is full, an entry older than the
+ * time to live (if any) is recomputed and a CompletionStage completing exceptionally is evicted.
+ * The cache is shared by all the sessions of a kie base, so it must be used only for pure functions.
+ */
+public class InvocationCache {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Function<Object[], ?> keyExtractor;
+
+    private final LinkedHashMap<Object, Entry> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public InvocationCache(int maxSize) {
+        this(maxSize, 0, TimeUnit.MILLISECONDS);
+    }
+
+    public InvocationCache(int maxSize, long ttl, TimeUnit unit) {
+        this(maxSize, ttl, unit, InvocationCache::argumentsKey);
+    }
+
+    public InvocationCache(int maxSize, long ttl, TimeUnit unit, Function<Object[], ?> keyExtractor) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("The size of an invocation cache must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.keyExtractor = keyExtractor;
+        this.entries = new LinkedHashMap<Object, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+                if (size() > InvocationCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public Object get(Object[] args, Function<Object[], Object> function) {
+        Object key = keyExtractor.apply(args);
+        long now = ttlNanos > 0 ? System.nanoTime() : 0;
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && (ttlNanos <= 0 || now - entry.timestamp < ttlNanos)) {
+                hits.increment();
+                return entry.value;
+            }
+        }
+        misses.increment();
+        // computed outside the lock, so a slow function doesn't block the lookups of other keys
+        Object value = function.apply(args);
+        Entry entry = new Entry(value, now);
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+        if (value instanceof CompletionStage) {
+            ((CompletionStage<?>) value).whenComplete( (result, error) -> {
+                if (error != null) {
+                    evict(key, entry);
+                }
+            } );
+        }
+        return value;
+    }
+
+    private void evict(Object key, Entry entry) {
+        synchronized (entries) {
+            // a newer entry for the same key is kept
+            entries.remove(key, entry);
+        }
+    }
+
+    private static Object argumentsKey(Object[] args) {
+        return args.length == 1 ? args[0] : new InvocationKey(args);
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "InvocationCache{size=" + size() + ", hits=" + getHitCount() + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + "}";
+    }
+
+    private static class Entry {
+        private final Object value;
+        private final long timestamp;
+
+        private Entry(Object value, long timestamp) {
+            this.value = value;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private static class InvocationKey {
+        private final Object[] args;
+        private final int hashCode;
+
+        private InvocationKey(Object[] args) {
+            this.args = args;
+            this.hashCode = Arrays.hashCode(args);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return this == other || (other instanceof InvocationKey && Arrays.equals(args, ((InvocationKey) other).args));
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
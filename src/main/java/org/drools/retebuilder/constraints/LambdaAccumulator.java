@@ -6,6 +6,9 @@ import org.drools.core.rule.Declaration;
 import org.drools.core.spi.Accumulator;
 import org.drools.core.spi.Tuple;
 import org.drools.model.AccumulateFunction;
+import org.drools.model.functions.accumulate.Max;
+import org.drools.model.functions.accumulate.Min;
+import org.drools.retebuilder.accumulate.IrreversibleAccumulateFunction;
 
 import java.io.Serializable;
 
@@ -17,6 +20,10 @@ public class LambdaAccumulator implements Accumulator {
         this.accumulateFunction = accumulateFunction;
     }
 
+    public AccumulateFunction getAccumulateFunction() {
+        return accumulateFunction;
+    }
+
     @Override
     public Object createWorkingMemoryContext() {
         // no working memory context needed
@@ -39,7 +46,14 @@ public class LambdaAccumulator implements Accumulator {
 
     @Override
     public boolean supportsReverse() {
-        return true;
+        return isReversible(accumulateFunction);
+    }
+
+    public static boolean isReversible(AccumulateFunction function) {
+        // the min and max of the model can't update their result when the current extreme is retracted
+        return !(function instanceof IrreversibleAccumulateFunction) &&
+               !(function instanceof Min) &&
+               !(function instanceof Max);
     }
 
     @Override
@@ -14,6 +14,7 @@ import org.drools.core.spi.Tuple;
 import org.drools.core.util.AbstractHashTable.FieldIndex;
 import org.drools.core.util.index.IndexUtil;
 import org.drools.model.AlphaIndex;
+import org.drools.model.BetaIndex;
 import org.drools.model.Index;
 
 public class LambdaConstraint extends MutableTypeConstraint implements IndexableConstraint {
@@ -23,6 +24,7 @@ public class LambdaConstraint extends MutableTypeConstraint implements Indexable
 
     private FieldValue field;
     private InternalReadAccessor readAccessor;
+    private FieldIndex fieldIndex;
 
     public LambdaConstraint(ConstraintEvaluator evaluator) {
         this(evaluator, new Declaration[0]);
@@ -39,6 +41,11 @@ public class LambdaConstraint extends MutableTypeConstraint implements Indexable
         if (index instanceof AlphaIndex ) {
             field = new ObjectFieldImpl( ( (AlphaIndex) index ).getRightValue() );
             readAccessor = new LambdaReadAccessor( ( (AlphaIndex) index ).getLeftOperandExtractor() );
+        } else if (index instanceof BetaIndex && requiredDeclarations.length == 1) {
+            // the right memory is hashed on the value extracted from the fact, the left one on the value
+            // extracted from the fact of the tuple read by the declaration
+            readAccessor = new LambdaReadAccessor( ( (BetaIndex) index ).getLeftOperandExtractor() );
+            fieldIndex = new FieldIndex( readAccessor, requiredDeclarations[0] );
         }
     }
 
@@ -62,8 +69,19 @@ public class LambdaConstraint extends MutableTypeConstraint implements Indexable
         throw new UnsupportedOperationException("org.drools.retebuilder.constraints.LambdaConstraint.isTemporal -> TODO");
     }
 
+    public ConstraintEvaluator getEvaluator() {
+        return evaluator;
+    }
+
     @Override
     public boolean isAllowed(InternalFactHandle handle, InternalWorkingMemory workingMemory) {
+        AlphaBatch batch = AlphaBatch.active();
+        if (batch != null) {
+            int verdict = batch.getVerdict(this, handle);
+            if (verdict != AlphaBatch.UNKNOWN) {
+                return verdict == AlphaBatch.ALLOWED;
+            }
+        }
         return evaluator.evaluate(handle);
     }
 
@@ -74,7 +92,7 @@ public class LambdaConstraint extends MutableTypeConstraint implements Indexable
 
     @Override
     public boolean isAllowedCachedRight(Tuple tuple, ContextEntry context) {
-        throw new UnsupportedOperationException("org.drools.retebuilder.constraints.LambdaConstraint.isAllowedCachedRight -> TODO");
+        return evaluator.evaluate(((LambdaContextEntry) context).getHandle(), tuple);
     }
 
     @Override
@@ -84,12 +102,15 @@ public class LambdaConstraint extends MutableTypeConstraint implements Indexable
 
     @Override
     public boolean isUnification() {
-        throw new UnsupportedOperationException( "org.drools.retebuilder.constraints.LambdaConstraint.isUnification -> TODO" );
-
+        return false;
     }
 
     @Override
     public boolean isIndexable( short nodeType ) {
+        if (evaluator.getIndex() instanceof BetaIndex && fieldIndex == null) {
+            // the value of the tuple to be hashed is unknown
+            return false;
+        }
         return getConstraintType().isIndexableForNode(nodeType);
     }
 
@@ -124,8 +145,10 @@ public class LambdaConstraint extends MutableTypeConstraint implements Indexable
 
     @Override
     public FieldIndex getFieldIndex() {
-        throw new UnsupportedOperationException( "org.drools.retebuilder.constraints.LambdaConstraint.getFieldIndex -> TODO" );
-
+        if (fieldIndex == null) {
+            throw new UnsupportedOperationException( "Only constraints having a beta index can index a beta memory" );
+        }
+        return fieldIndex;
     }
 
     @Override
@@ -137,6 +160,10 @@ public class LambdaConstraint extends MutableTypeConstraint implements Indexable
         Tuple getTuple() {
             return tuple;
         }
+
+        InternalFactHandle getHandle() {
+            return rightHandle;
+        }
     }
 
     @Override
@@ -1,7 +1,11 @@
 package org.drools.retebuilder.constraints;
 
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
 
 import org.drools.core.common.InternalWorkingMemory;
 import org.drools.core.rule.Declaration;
@@ -11,18 +15,29 @@ import org.drools.core.spi.Tuple;
 import org.drools.model.InvokerMultiValuePattern;
 import org.drools.model.InvokerPattern;
 import org.drools.model.InvokerSingleValuePattern;
+import org.drools.retebuilder.InvokerOptions;
+import org.drools.retebuilder.nodes.PhreakReactiveInvokerNode;
+import org.drools.retebuilder.nodes.SyncInvokerNode;
 
 import static org.drools.retebuilder.constraints.EvaluationUtil.findArgsPos;
 import static org.drools.retebuilder.constraints.EvaluationUtil.getInvocationArgs;
 
 public class LambdaDataProvider<T> implements DataProvider {
 
-    private final InvokerPattern<T> pattern;
-    private final int[] argsPos;
+    protected final InvokerPattern<T> pattern;
+    protected final int[] argsPos;
+    protected final InvokerOptions options;
+
+    private SyncInvokerNode invokerNode;
 
     public LambdaDataProvider(InvokerPattern<T> pattern) {
+        this(pattern, InvokerOptions.DEFAULT);
+    }
+
+    public LambdaDataProvider(InvokerPattern<T> pattern, InvokerOptions options) {
         this.pattern = pattern;
         this.argsPos = findArgsPos(pattern, pattern.getInputVariables());
+        this.options = options;
     }
 
     @Override
@@ -30,18 +45,101 @@ public class LambdaDataProvider<T> implements DataProvider {
         return null;
     }
 
+    /**
+     * Sets the node of a synchronous invoker, for which the sessions of a reactive invoker diff the results.
+     */
+    public void setInvokerNode(SyncInvokerNode invokerNode) {
+        this.invokerNode = invokerNode;
+    }
+
     @Override
     public Object createContext() {
-        return null;
+        return options.getResultKey() != null ? new PhreakReactiveInvokerNode( invokerNode, options.getResultKey() ) : null;
     }
 
     @Override
     public Iterator getResults( Tuple tuple, InternalWorkingMemory wm, PropagationContext ctx, Object providerContext ) {
+        Object[] args = getInvocationArgs(argsPos, null, tuple);
+        return providerContext != null ?
+               ((PhreakReactiveInvokerNode) providerContext).getResults( tuple, args, ctx, wm, this::results ) :
+               results( args );
+    }
+
+    private Iterator<?> results( Object[] args ) {
+        Object result = invoke( args );
+        return pattern.isMultiValue() ?
+               resultsIterator( result, options.getResultsLimit() ) :
+               Collections.singletonList(result).iterator();
+    }
+
+    /**
+     * Iterates the results of a multi-value invoker without materializing them: besides an Iterable, the invoked
+     * function can return an Iterator, a Stream or a Spliterator, which are consumed only as far as the from node
+     * pulls them, and not beyond the given limit when it is positive.
+     * A Stream is closed, running its close handlers, once exhausted or truncated by the limit.
+     */
+    public static Iterator<?> resultsIterator( Object result, int limit ) {
+        Iterator<?> iterator;
+        if (result instanceof Iterable) {
+            iterator = ((Iterable<?>) result).iterator();
+        } else if (result instanceof Stream) {
+            return new LimitedIterator( ((Stream<?>) result).iterator(), limit, (Stream<?>) result );
+        } else if (result instanceof Spliterator) {
+            iterator = Spliterators.iterator( (Spliterator<?>) result );
+        } else if (result instanceof Iterator) {
+            iterator = (Iterator<?>) result;
+        } else {
+            throw new RuntimeException( "Unknown result type of a multi-value invoker: " + result.getClass().getName() );
+        }
+        return limit > 0 ? new LimitedIterator( iterator, limit, null ) : iterator;
+    }
+
+    private static class LimitedIterator implements Iterator<Object> {
+        private final Iterator<?> iterator;
+        private Stream<?> stream;
+        // a negative count means no limit
+        private int remaining;
+
+        private LimitedIterator( Iterator<?> iterator, int limit, Stream<?> stream ) {
+            this.iterator = iterator;
+            this.stream = stream;
+            this.remaining = limit > 0 ? limit : -1;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (remaining != 0 && iterator.hasNext()) {
+                return true;
+            }
+            if (stream != null) {
+                stream.close();
+                stream = null;
+            }
+            return false;
+        }
+
+        @Override
+        public Object next() {
+            if (remaining == 0) {
+                throw new NoSuchElementException();
+            }
+            if (remaining > 0) {
+                remaining--;
+            }
+            return iterator.next();
+        }
+    }
+
+    protected Object invoke( Object[] args ) {
+        InvocationCache cache = options.getCache();
+        return cache != null ? cache.get( args, this::apply ) : apply( args );
+    }
+
+    private Object apply( Object[] args ) {
         if (pattern.isMultiValue()) {
-            return ((InvokerMultiValuePattern<T>)pattern).getInvokedFunction().apply( getInvocationArgs(argsPos, null, tuple) ).iterator();
+            return ((InvokerMultiValuePattern<T>)pattern).getInvokedFunction().apply( args );
         } else {
-            Object result = ((InvokerSingleValuePattern<T>)pattern).getInvokedFunction().apply( getInvocationArgs(argsPos, null, tuple) );
-            return Arrays.asList(result).iterator();
+            return ((InvokerSingleValuePattern<T>)pattern).getInvokedFunction().apply( args );
         }
     }
 
@@ -53,6 +151,10 @@ public class LambdaDataProvider<T> implements DataProvider {
     @Override
     public void replaceDeclaration(Declaration declaration, Declaration resolved) { }
 
+    /**
+     * A reactive invoker reacts to the updates of its inputs, but its results don't notify their own modifications
+     * as the reactive objects of a reactive from do.
+     */
     @Override
     public boolean isReactive() {
         return false;
@@ -0,0 +1,102 @@
+package org.drools.retebuilder.datasources;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.drools.core.common.InternalWorkingMemory;
+import org.drools.core.phreak.PropagationEntry;
+import org.drools.model.datasources.DataSourceObserver;
+import org.kie.api.runtime.rule.EntryPoint;
+import org.kie.api.runtime.rule.FactHandle;
+
+/**
+ * Translates the changes of a {@link LiveDataStore} into inserts, updates and deletes on the entry point
+ * it is bound to, keeping track of the fact handle of each object of the store.
+ * The changes can be notified by any thread: they are queued as propagation entries in the order they happened
+ * and applied to the entry point by the thread evaluating the session.
+ * The store references the binding, and then the session, until the binding is closed.
+ */
+public class DataStoreBinding implements DataSourceObserver, AutoCloseable {
+
+    private final InternalWorkingMemory workingMemory;
+    private final EntryPoint entryPoint;
+    private final LiveDataStore<?> store;
+
+    // only accessed by the propagation entries, that are executed by the session thread
+    private final Map<Object, FactHandle> handles = new IdentityHashMap<Object, FactHandle>();
+
+    private DataStoreBinding(InternalWorkingMemory workingMemory, EntryPoint entryPoint, LiveDataStore<?> store) {
+        this.workingMemory = workingMemory;
+        this.entryPoint = entryPoint;
+        this.store = store;
+    }
+
+    /**
+     * Inserts the current content of the store into the entry point and keeps it in sync with the store until closed.
+     */
+    public static DataStoreBinding bind(InternalWorkingMemory workingMemory, EntryPoint entryPoint, LiveDataStore<?> store) {
+        DataStoreBinding binding = new DataStoreBinding( workingMemory, entryPoint, store );
+        store.subscribe( binding );
+        return binding;
+    }
+
+    /**
+     * Stops propagating the changes of the store into the session, e.g. before disposing it.
+     * The facts already inserted are left in the entry point.
+     */
+    @Override
+    public void close() {
+        store.unsubscribe( this );
+    }
+
+    @Override
+    public boolean objectInserted(Object object) {
+        workingMemory.addPropagation( new ChangeEntry( object, ChangeType.INSERT ) );
+        return true;
+    }
+
+    @Override
+    public boolean objectUpdated(Object object) {
+        workingMemory.addPropagation( new ChangeEntry( object, ChangeType.UPDATE ) );
+        return true;
+    }
+
+    @Override
+    public boolean objectDeleted(Object object) {
+        workingMemory.addPropagation( new ChangeEntry( object, ChangeType.DELETE ) );
+        return true;
+    }
+
+    private enum ChangeType { INSERT, UPDATE, DELETE }
+
+    private class ChangeEntry extends PropagationEntry.AbstractPropagationEntry {
+        private final Object object;
+        private final ChangeType type;
+
+        private ChangeEntry(Object object, ChangeType type) {
+            this.object = object;
+            this.type = type;
+        }
+
+        @Override
+        public void execute(InternalWorkingMemory wm) {
+            switch (type) {
+                case INSERT:
+                    handles.put( object, entryPoint.insert( object ) );
+                    break;
+                case UPDATE:
+                    FactHandle updated = handles.get( object );
+                    if (updated != null) {
+                        entryPoint.update( updated, object );
+                    }
+                    break;
+                case DELETE:
+                    FactHandle deleted = handles.remove( object );
+                    if (deleted != null) {
+                        entryPoint.delete( deleted );
+                    }
+                    break;
+            }
+        }
+    }
+}
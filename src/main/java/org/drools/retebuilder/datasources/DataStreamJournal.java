@@ -0,0 +1,290 @@
+package org.drools.retebuilder.datasources;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * An append-only log of the events received by a data stream, stored in a sequence of memory-mapped segment files
+ * of fixed size. Each record is the length of the encoded event followed by its bytes, a zero length marks the end of
+ * the written part of a segment.
+ *
+ * Appending only copies the record into the mapped segment, while forcing it to disk is done by group commit on a
+ * background thread: once every {@code groupSize} appended events or, at the latest, every {@code maxDelayMillis} milliseconds.
+ * On restart the events are replayed starting from the last {@link #checkpoint() checkpoint}, if any. Only the segments
+ * fully covered by the checkpoint are deleted, the oldest first, once there are more than {@code retainedSegments}:
+ * the segments holding events not yet checkpointed are never deleted, so the journal grows until the next checkpoint.
+ */
+public class DataStreamJournal<T> implements AutoCloseable {
+
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final int HEADER_SIZE = 4;
+
+    private final Path directory;
+    private final JournalCodec<T> codec;
+    private final int segmentSize;
+    private final int retainedSegments;
+    private final int groupSize;
+
+    private final List<Path> segments = new ArrayList<Path>();
+    private final ScheduledExecutorService flusher;
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long nextSegmentId;
+    private int unflushed = 0;
+    private boolean flushScheduled = false;
+    private boolean closed = false;
+
+    private long checkpointSegmentId = -1;
+    private int checkpointPosition = 0;
+
+    public DataStreamJournal(Path directory, JournalCodec<T> codec) {
+        this(directory, codec, 64 * 1024 * 1024, 16, 256, 10);
+    }
+
+    public DataStreamJournal(Path directory, JournalCodec<T> codec, int segmentSize, int retainedSegments, int groupSize, long maxDelayMillis) {
+        this.directory = directory;
+        this.codec = codec;
+        this.segmentSize = segmentSize;
+        this.retainedSegments = retainedSegments;
+        this.groupSize = groupSize;
+
+        try {
+            Files.createDirectories(directory);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+                for (Path file : files) {
+                    segments.add(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Collections.sort(segments);
+        readCheckpoint();
+
+        if (segments.isEmpty()) {
+            nextSegmentId = 0;
+            openNewSegment();
+        } else {
+            Path last = segments.get(segments.size() - 1);
+            nextSegmentId = segmentId(last) + 1;
+            openSegment(last);
+            skipWrittenRecords();
+        }
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "journal-flusher-" + directory.getFileName());
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, maxDelayMillis, maxDelayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void append(T event) {
+        checkOpen();
+        byte[] record = codec.encode(event);
+        if (record.length == 0) {
+            // a zero length is the terminator of the written part of a segment
+            throw new IllegalArgumentException("Events encoded into an empty record can't be journaled");
+        }
+        if (record.length + HEADER_SIZE > segmentSize - HEADER_SIZE) {
+            throw new IllegalArgumentException("Event too large for a journal segment: " + record.length + " bytes");
+        }
+        if (buffer.remaining() < record.length + 2 * HEADER_SIZE) {
+            buffer.force();
+            openNewSegment();
+        }
+        // the terminator is written first, so a partially written record is never replayed
+        int position = buffer.position();
+        buffer.putInt(position + HEADER_SIZE + record.length, 0);
+        buffer.position(position + HEADER_SIZE);
+        buffer.put(record);
+        buffer.putInt(position, record.length);
+        if (++unflushed >= groupSize && !flushScheduled) {
+            flushScheduled = true;
+            flusher.execute(this::flush);
+        }
+    }
+
+    /**
+     * Forces the appended events to disk. The segment is forced outside the lock, so appends aren't blocked meanwhile.
+     */
+    public void flush() {
+        MappedByteBuffer toBeForced;
+        synchronized (this) {
+            flushScheduled = false;
+            if (unflushed == 0) {
+                return;
+            }
+            unflushed = 0;
+            toBeForced = buffer;
+        }
+        toBeForced.force();
+    }
+
+    /**
+     * Marks all the events appended so far as already reflected by the state of the application, e.g. because
+     * the session has been persisted, so that they aren't replayed anymore on restart.
+     * The segments preceding the checkpoint can then be deleted.
+     */
+    public synchronized void checkpoint() {
+        checkOpen();
+        buffer.force();
+        unflushed = 0;
+        checkpointSegmentId = nextSegmentId - 1;
+        checkpointPosition = buffer.position();
+        writeCheckpoint();
+        deleteCheckpointedSegments();
+    }
+
+    /**
+     * Reads all the retained events from the oldest to the most recent one, passing them to the consumer in batches.
+     */
+    public synchronized void replay(int batchSize, Consumer<List<T>> batchConsumer) {
+        List<T> batch = new ArrayList<T>(batchSize);
+        for (Path segment : segments) {
+            long segmentId = segmentId(segment);
+            if (segmentId < checkpointSegmentId) {
+                continue;
+            }
+            try (FileChannel readChannel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                MappedByteBuffer readBuffer = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, readChannel.size());
+                if (segmentId == checkpointSegmentId) {
+                    readBuffer.position(checkpointPosition);
+                }
+                while (readBuffer.remaining() >= HEADER_SIZE) {
+                    int length = readBuffer.getInt();
+                    if (length <= 0 || length > readBuffer.remaining()) {
+                        break;
+                    }
+                    byte[] record = new byte[length];
+                    readBuffer.get(record);
+                    batch.add(codec.decode(record));
+                    if (batch.size() == batchSize) {
+                        batchConsumer.accept(batch);
+                        batch = new ArrayList<T>(batchSize);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (!batch.isEmpty()) {
+            batchConsumer.accept(batch);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        flusher.shutdown();
+        buffer.force();
+        closeChannel();
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("The journal in " + directory + " has been closed");
+        }
+    }
+
+    private void openNewSegment() {
+        Path segment = directory.resolve(String.format("%020d%s", nextSegmentId++, SEGMENT_SUFFIX));
+        if (channel != null) {
+            closeChannel();
+        }
+        segments.add(segment);
+        openSegment(segment);
+        deleteCheckpointedSegments();
+    }
+
+    private void deleteCheckpointedSegments() {
+        // a segment can be deleted only if all its events precede the checkpoint, otherwise they would be lost on restart
+        while (segments.size() > retainedSegments && segmentId(segments.get(0)) < checkpointSegmentId) {
+            try {
+                Files.deleteIfExists(segments.remove(0));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void readCheckpoint() {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        if (Files.exists(file)) {
+            try {
+                ByteBuffer checkpoint = ByteBuffer.wrap(Files.readAllBytes(file));
+                checkpointSegmentId = checkpoint.getLong();
+                checkpointPosition = checkpoint.getInt();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void writeCheckpoint() {
+        ByteBuffer checkpoint = ByteBuffer.allocate(12).putLong(checkpointSegmentId).putInt(checkpointPosition);
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        Path tmp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try {
+            // the checkpoint is replaced atomically, so a crash leaves either the old or the new one
+            Files.write(tmp, checkpoint.array());
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void openSegment(Path segment) {
+        try {
+            channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void skipWrittenRecords() {
+        while (buffer.remaining() >= HEADER_SIZE) {
+            int position = buffer.position();
+            int length = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                buffer.position(position);
+                return;
+            }
+            buffer.position(buffer.position() + length);
+        }
+    }
+
+    private void closeChannel() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long segmentId(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,44 @@
+package org.drools.retebuilder.datasources;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Converts the events of a stream to and from the records of a {@link DataStreamJournal}.
+ */
+public interface JournalCodec<T> {
+
+    byte[] encode(T event);
+
+    T decode(byte[] record);
+
+    static <T> JournalCodec<T> serialization() {
+        return new JournalCodec<T>() {
+            @Override
+            public byte[] encode(T event) {
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+                    oos.writeObject(event);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return baos.toByteArray();
+            }
+
+            @Override
+            public T decode(byte[] record) {
+                try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(record))) {
+                    return (T) ois.readObject();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } catch (ClassNotFoundException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,79 @@
+package org.drools.retebuilder.datasources;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.drools.model.datasources.DataSourceObserver;
+import org.drools.model.datasources.DataStore;
+
+/**
+ * A {@link DataStore} that stays bound to the sessions it has been bound to: every add, remove and update
+ * performed on the store after the binding is notified to its observers, so that only the deltas
+ * are propagated into the bound entry points. Since it is a DataStore, it can be used wherever a static store is,
+ * bindings that don't support the notifications only insert its current content.
+ */
+public class LiveDataStore<T> implements DataStore {
+
+    private final Set<T> objects = Collections.newSetFromMap( new IdentityHashMap<T, Boolean>() );
+    private final List<DataSourceObserver> observers = new CopyOnWriteArrayList<DataSourceObserver>();
+
+    @SafeVarargs
+    public static <T> LiveDataStore<T> liveStoreOf(T... items) {
+        LiveDataStore<T> store = new LiveDataStore<T>();
+        for (T item : items) {
+            store.add( item );
+        }
+        return store;
+    }
+
+    public synchronized Collection<T> getObjects() {
+        return new ArrayList<T>( objects );
+    }
+
+    public synchronized void add(T object) {
+        if (objects.add( object )) {
+            for (DataSourceObserver observer : observers) {
+                observer.objectInserted( object );
+            }
+        }
+    }
+
+    public synchronized void remove(T object) {
+        if (objects.remove( object )) {
+            for (DataSourceObserver observer : observers) {
+                observer.objectDeleted( object );
+            }
+        }
+    }
+
+    /**
+     * Notifies that an object of this store has been modified.
+     */
+    public synchronized void update(T object) {
+        if (objects.contains( object )) {
+            for (DataSourceObserver observer : observers) {
+                observer.objectUpdated( object );
+            }
+        }
+    }
+
+    /**
+     * Notifies the current content of the store to the observer and then keeps it notified of all the changes.
+     * Both happen while holding the lock on the store, so that no change can be lost or seen twice.
+     */
+    public synchronized void subscribe(DataSourceObserver observer) {
+        for (T object : objects) {
+            observer.objectInserted( object );
+        }
+        observers.add( observer );
+    }
+
+    public synchronized void unsubscribe(DataSourceObserver observer) {
+        observers.remove( observer );
+    }
+}
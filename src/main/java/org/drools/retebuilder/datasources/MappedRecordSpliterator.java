@@ -0,0 +1,97 @@
+package org.drools.retebuilder.datasources;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Iterates the fixed-width records of a file mapping it in windows of at most {@link #WINDOW_SIZE} bytes,
+ * so that files larger than 2GB can be read and only the window currently read needs to be resident.
+ * A file whose size is not a multiple of the record size is rejected before reading any record.
+ */
+class MappedRecordSpliterator<T> extends Spliterators.AbstractSpliterator<T> implements AutoCloseable {
+
+    private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final int recordSize;
+    private final Function<ByteBuffer, T> reader;
+    private final long recordsNr;
+    private final long recordsPerWindow;
+
+    private MappedByteBuffer window;
+    private long windowStart = -1;
+    private long next = 0;
+
+    MappedRecordSpliterator(Path file, int recordSize, Function<ByteBuffer, T> reader) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+        if (recordSize <= 0 || recordSize > WINDOW_SIZE) {
+            throw new IllegalArgumentException("Invalid record size: " + recordSize);
+        }
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            long size = channel.size();
+            if (size % recordSize != 0) {
+                // a truncated file must not be loaded as if it were complete
+                channel.close();
+                throw new IllegalArgumentException("The file " + file + " ends with a partial record of " + (size % recordSize) +
+                                                   " bytes, its size is not a multiple of the record size " + recordSize);
+            }
+            this.recordsNr = size / recordSize;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.recordSize = recordSize;
+        this.reader = reader;
+        this.recordsPerWindow = WINDOW_SIZE / recordSize;
+    }
+
+    @Override
+    public long estimateSize() {
+        return recordsNr - next;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (next >= recordsNr) {
+            return false;
+        }
+        long windowIndex = next / recordsPerWindow;
+        if (windowIndex != windowStart) {
+            mapWindow(windowIndex);
+        }
+        int offset = (int) ((next - windowIndex * recordsPerWindow) * recordSize);
+        window.limit(offset + recordSize).position(offset);
+        next++;
+        action.accept(reader.apply(window));
+        return true;
+    }
+
+    private void mapWindow(long windowIndex) {
+        long position = windowIndex * recordsPerWindow * recordSize;
+        long size = Math.min(recordsPerWindow, recordsNr - windowIndex * recordsPerWindow) * recordSize;
+        try {
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        windowStart = windowIndex;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
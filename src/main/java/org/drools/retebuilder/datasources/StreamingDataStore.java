@@ -0,0 +1,83 @@
+package org.drools.retebuilder.datasources;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.drools.model.datasources.DataSource;
+
+/**
+ * A data store whose objects are produced lazily while they are inserted into the session, instead of being
+ * materialized in a collection before the binding as {@link org.drools.model.datasources.DataStore} requires.
+ * Each object is then referenced only by the working memory once inserted. A streaming store can be consumed only once.
+ */
+public class StreamingDataStore<T> implements DataSource<T>, AutoCloseable {
+
+    private final Stream<T> stream;
+    private boolean consumed = false;
+
+    private StreamingDataStore(Stream<T> stream) {
+        this.stream = stream;
+    }
+
+    public static <T> StreamingDataStore<T> streamOf(Stream<T> stream) {
+        return new StreamingDataStore<T>(stream);
+    }
+
+    public static <T> StreamingDataStore<T> streamOf(Spliterator<T> spliterator) {
+        return new StreamingDataStore<T>(StreamSupport.stream(spliterator, false));
+    }
+
+    public static <T> StreamingDataStore<T> streamOf(Iterator<T> iterator) {
+        return streamOf(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL));
+    }
+
+    /**
+     * Reads a line-delimited file, converting each line into an object with the given parser.
+     */
+    public static <T> StreamingDataStore<T> fromLines(Path file, Function<String, T> parser) {
+        return fromLines(file, StandardCharsets.UTF_8, parser);
+    }
+
+    public static <T> StreamingDataStore<T> fromLines(Path file, Charset charset, Function<String, T> parser) {
+        try {
+            return new StreamingDataStore<T>(Files.lines(file, charset).map(parser));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads a file of fixed-width binary records through a memory mapping, so that the file content is paged in by
+     * the operating system instead of being copied on the heap. The reader receives a buffer whose position and limit
+     * are set to the boundaries of a single record and is valid only for the duration of the call.
+     * A file ending with a partial record is rejected with an IllegalArgumentException.
+     */
+    public static <T> StreamingDataStore<T> fromFixedWidthRecords(Path file, int recordSize, Function<ByteBuffer, T> reader) {
+        MappedRecordSpliterator<T> spliterator = new MappedRecordSpliterator<T>(file, recordSize, reader);
+        return new StreamingDataStore<T>(StreamSupport.stream(spliterator, false).onClose(spliterator::close));
+    }
+
+    public Iterator<T> iterator() {
+        if (consumed) {
+            throw new IllegalStateException("A streaming data store can be consumed only once");
+        }
+        consumed = true;
+        return stream.iterator();
+    }
+
+    @Override
+    public void close() {
+        stream.close();
+    }
+}
@@ -0,0 +1,25 @@
+package org.drools.retebuilder.nodes;
+
+import org.drools.core.common.EmptyBetaConstraints;
+import org.drools.core.reteoo.FromNode;
+import org.drools.core.rule.From;
+import org.drools.core.spi.AlphaNodeFieldConstraint;
+import org.drools.retebuilder.CanonicalBuildContext;
+import org.drools.retebuilder.constraints.AsyncLambdaDataProvider;
+
+public class AsyncInvokerNode extends FromNode {
+
+    public AsyncInvokerNode() { }
+
+    public AsyncInvokerNode(CanonicalBuildContext context, AsyncLambdaDataProvider dataProvider, From from) {
+        super(context.getNextId(),
+              dataProvider,
+              context.getTupleSource(),
+              new AlphaNodeFieldConstraint[0],
+              EmptyBetaConstraints.getInstance(),
+              context.isTupleMemoryEnabled(),
+              context,
+              from);
+        dataProvider.setInvokerNode(this);
+    }
+}
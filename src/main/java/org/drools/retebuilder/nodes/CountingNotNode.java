@@ -0,0 +1,55 @@
+package org.drools.retebuilder.nodes;
+
+import org.drools.core.common.BetaConstraints;
+import org.drools.core.common.InternalFactHandle;
+import org.drools.core.common.InternalWorkingMemory;
+import org.drools.core.reteoo.BetaMemory;
+import org.drools.core.reteoo.NotNode;
+import org.drools.core.reteoo.LeftTupleSource;
+import org.drools.core.reteoo.ObjectSource;
+import org.drools.core.reteoo.RightTuple;
+import org.drools.core.reteoo.builder.BuildContext;
+import org.drools.core.spi.PropagationContext;
+
+/**
+ * The not node of a pattern without joins, which only depends on the number of facts reaching its right input:
+ * they are counted by a {@link PresenceCounter} instead of being stored, and the right memory only holds
+ * the tuple of a single token while the count is positive. Inserting or retracting a fact is O(1).
+ *
+ * The right tuple of a counted fact is never staged: it is only linked to the fact handle, so that the retraction
+ * of the fact, or an update making it stop satisfying the alpha constraints, reaches this node and uncounts it.
+ */
+public class CountingNotNode extends NotNode {
+
+    public CountingNotNode(int id, LeftTupleSource leftInput, ObjectSource rightInput, BetaConstraints constraints,
+                         BuildContext context) {
+        super(id, leftInput, rightInput, constraints, context);
+    }
+
+    @Override
+    public void assertObject(InternalFactHandle factHandle, PropagationContext pctx, InternalWorkingMemory wm) {
+        createRightTuple(factHandle, this, pctx);
+        InternalFactHandle token = PresenceCounter.of(this, wm).increment(wm);
+        if (token != null) {
+            super.assertObject(token, pctx, wm);
+        }
+    }
+
+    /**
+     * A counted fact still satisfying the alpha constraints after an update doesn't change the count.
+     */
+    @Override
+    public void doUpdateRightTuple(RightTuple rightTuple, InternalWorkingMemory wm, BetaMemory memory) { }
+
+    /**
+     * Only reached by the right tuples of the counted facts: the one of the token is deleted through this class.
+     */
+    @Override
+    public void doDeleteRightTuple(RightTuple rightTuple, InternalWorkingMemory wm, BetaMemory memory) {
+        RightTuple tokenTuple = PresenceCounter.of(this, wm).decrement();
+        if (tokenTuple != null) {
+            tokenTuple.setPropagationContext(rightTuple.getPropagationContext());
+            super.doDeleteRightTuple(tokenTuple, wm, memory);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.drools.retebuilder.nodes;
 
+import java.util.List;
 import java.util.UUID;
 
 import org.drools.core.common.InternalFactHandle;
@@ -19,6 +20,7 @@ import org.drools.core.util.Bag;
 import org.drools.model.DataSourceDefinition;
 import org.drools.model.datasources.DataSourceObserver;
 import org.drools.model.datasources.Observable;
+import org.drools.retebuilder.datasources.DataStreamJournal;
 import org.kie.api.definition.rule.Rule;
 import org.kie.api.runtime.KieSession;
 
@@ -62,6 +64,16 @@ public class DataStreamNode extends ObjectTypeNode {
         new DataStreamObserver((InternalWorkingMemory)kieSession, this, observable);
     }
 
+    /**
+     * Replays the events retained by the journal through the batch ingestion path and then journals
+     * every new event of the observable before propagating it.
+     */
+    public void registerDataStreamObserver(KieSession kieSession, Observable observable, DataStreamJournal<Object> journal, int replayBatchSize ) {
+        DataStreamObserver observer = new DataStreamObserver((InternalWorkingMemory)kieSession, this, journal);
+        journal.replay(replayBatchSize, observer::objectsInserted);
+        observable.addObserver(observer);
+    }
+
     public static class DataStreamEntryPointNode extends EntryPointNode {
 
         DataStreamEntryPointNode(BuildContext context, EntryPointId entryPointId) {
@@ -82,20 +94,45 @@ public class DataStreamNode extends ObjectTypeNode {
         private final ObjectTypeConfigurationRegistry typeConfReg;
         private final FactHandleFactory handleFactory;
         private final PropagationContextFactory pctxFactory;
+        private final DataStreamJournal<Object> journal;
 
         public DataStreamObserver(InternalWorkingMemory workingMemory, DataStreamNode dataStreamNode, Observable observable) {
+            this(workingMemory, dataStreamNode, (DataStreamJournal<Object>) null);
+            observable.addObserver(this);
+        }
+
+        public DataStreamObserver(InternalWorkingMemory workingMemory, DataStreamNode dataStreamNode, DataStreamJournal<Object> journal) {
             this.workingMemory = workingMemory;
             this.dataStreamNode = dataStreamNode;
+            this.journal = journal;
 
             this.typeConfReg = new ObjectTypeConfigurationRegistry(workingMemory.getKnowledgeBase());
             this.handleFactory = workingMemory.getFactHandleFactory();
             this.pctxFactory = workingMemory.getKnowledgeBase().getConfiguration().getComponentFactory().getPropagationContextFactory();
-
-            observable.addObserver(this);
         }
 
         @Override
         public boolean objectInserted(Object object) {
+            if (journal != null) {
+                journal.append(object);
+            }
+            propagateInsert(object);
+            workingMemory.notifyWaitOnRest();
+            return true;
+        }
+
+        /**
+         * Batch ingestion path: propagates all the objects and wakes up the engine only once at the end.
+         * The objects are not journaled, since this is used to replay the journal itself.
+         */
+        public void objectsInserted(List<?> objects) {
+            for (Object object : objects) {
+                propagateInsert(object);
+            }
+            workingMemory.notifyWaitOnRest();
+        }
+
+        private void propagateInsert(Object object) {
             ObjectTypeConf typeConf = typeConfReg.getObjectTypeConf( dataStreamNode.entryPointId,
                                                                      object );
 
@@ -115,8 +152,6 @@ public class DataStreamNode extends ObjectTypeNode {
             dataStreamNode.sink.propagateAssertObject( factHandle,
                                                        pctx,
                                                        workingMemory );
-            workingMemory.notifyWaitOnRest();
-            return true;
         }
 
         @Override
@@ -0,0 +1,140 @@
+package org.drools.retebuilder.nodes;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.drools.core.common.BetaConstraints;
+import org.drools.core.common.InternalFactHandle;
+import org.drools.core.common.InternalWorkingMemory;
+import org.drools.core.reteoo.BetaMemory;
+import org.drools.core.reteoo.JoinNode;
+import org.drools.core.reteoo.LeftTupleSource;
+import org.drools.core.reteoo.ObjectSource;
+import org.drools.core.reteoo.RightTuple;
+import org.drools.core.reteoo.builder.BuildContext;
+import org.drools.core.spi.PropagationContext;
+import org.drools.retebuilder.CanonicalAgenda;
+import org.drools.retebuilder.accumulate.Group;
+import org.drools.retebuilder.accumulate.GroupBy;
+
+/**
+ * Joins the left tuples with the groups of a {@link GroupBy}: its right input is fed by the grouped facts, but its
+ * right memory only holds a tuple per group, whose fact is the {@link Group} itself.
+ *
+ * Each session keeps the handles of its groups by key. Inserting, updating or deleting a grouped fact only changes
+ * the group of its key, and stages the right tuple of that group alone: an insert when the group is created, an update
+ * when its value changes and a delete when its last fact is removed. The right tuple of a grouped fact is never staged:
+ * it is only linked to the fact handle, so that the update and the retraction of the fact reach this node, and it
+ * carries the key of the group the fact has been added to, since the fact may have been modified meanwhile.
+ */
+public class GroupByNode extends JoinNode {
+
+    private final GroupBy<Object, Object> groupBy;
+    private final boolean reversible;
+
+    @SuppressWarnings("unchecked")
+    public GroupByNode(int id, LeftTupleSource leftInput, ObjectSource rightInput, BetaConstraints constraints,
+                       GroupBy<?, ?> groupBy, boolean reversible, BuildContext context) {
+        super(id, leftInput, rightInput, constraints, context);
+        this.groupBy = (GroupBy<Object, Object>) groupBy;
+        this.reversible = reversible;
+    }
+
+    @Override
+    public void assertObject(InternalFactHandle factHandle, PropagationContext pctx, InternalWorkingMemory wm) {
+        Object key = groupBy.getKey(factHandle.getObject());
+        RightTuple rightTuple = createRightTuple(factHandle, this, pctx);
+        rightTuple.setContextObject(key);
+        add(key, factHandle.getObject(), pctx, wm);
+    }
+
+    /**
+     * Only reached by the right tuples of the grouped facts: the ones of the groups are updated through this class.
+     */
+    @Override
+    public void doUpdateRightTuple(RightTuple rightTuple, InternalWorkingMemory wm, BetaMemory memory) {
+        Object fact = rightTuple.getFactHandle().getObject();
+        Object previousKey = rightTuple.getContextObject();
+        Object key = groupBy.getKey(fact);
+        if (Objects.equals(key, previousKey)) {
+            InternalFactHandle groupHandle = groupsOf(wm).get(key);
+            groupBy.update(groupOf(groupHandle), fact);
+            refresh(groupHandle, rightTuple.getPropagationContext(), wm, memory);
+        } else {
+            remove(previousKey, fact, rightTuple.getPropagationContext(), wm, memory);
+            rightTuple.setContextObject(key);
+            add(key, fact, rightTuple.getPropagationContext(), wm);
+        }
+    }
+
+    /**
+     * Only reached by the right tuples of the grouped facts: the ones of the groups are deleted through this class.
+     */
+    @Override
+    public void doDeleteRightTuple(RightTuple rightTuple, InternalWorkingMemory wm, BetaMemory memory) {
+        remove(rightTuple.getContextObject(), rightTuple.getFactHandle().getObject(), rightTuple.getPropagationContext(), wm, memory);
+    }
+
+    private void add(Object key, Object fact, PropagationContext pctx, InternalWorkingMemory wm) {
+        Map<Object, InternalFactHandle> groups = groupsOf(wm);
+        InternalFactHandle groupHandle = groups.get(key);
+        if (groupHandle == null) {
+            Group<Object, Object> group = groupBy.newGroup(key, reversible);
+            groupBy.add(group, fact);
+            groupBy.refresh(group, true);
+            groupHandle = wm.getFactHandleFactory().newFactHandle(group, null, wm, null);
+            groups.put(key, groupHandle);
+            super.assertObject(groupHandle, pctx, wm);
+            return;
+        }
+        groupBy.add(groupOf(groupHandle), fact);
+        refresh(groupHandle, pctx, wm, (BetaMemory) wm.getNodeMemory(this));
+    }
+
+    private void remove(Object key, Object fact, PropagationContext pctx, InternalWorkingMemory wm, BetaMemory memory) {
+        Map<Object, InternalFactHandle> groups = groupsOf(wm);
+        InternalFactHandle groupHandle = groups.get(key);
+        Group<Object, Object> group = groupOf(groupHandle);
+        groupBy.remove(group, fact);
+        if (!group.isEmpty()) {
+            refresh(groupHandle, pctx, wm, memory);
+            return;
+        }
+        groups.remove(key);
+        RightTuple groupTuple = groupHandle.getFirstRightTuple();
+        groupHandle.clearRightTuples();
+        groupTuple.setPropagationContext(pctx);
+        super.doDeleteRightTuple(groupTuple, wm, memory);
+    }
+
+    private void refresh(InternalFactHandle groupHandle, PropagationContext pctx, InternalWorkingMemory wm, BetaMemory memory) {
+        if (groupBy.refresh(groupOf(groupHandle), false)) {
+            RightTuple groupTuple = groupHandle.getFirstRightTuple();
+            groupTuple.setPropagationContext(pctx);
+            super.doUpdateRightTuple(groupTuple, wm, memory);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Group<Object, Object> groupOf(InternalFactHandle groupHandle) {
+        return (Group<Object, Object>) groupHandle.getObject();
+    }
+
+    private Map<Object, InternalFactHandle> groupsOf(InternalWorkingMemory wm) {
+        return ((CanonicalAgenda) wm.getAgenda()).getNodeState(this, HashMap::new);
+    }
+
+    /**
+     * The node is only shared by the rules grouping the same facts with the same group-by, never by a plain join.
+     */
+    @Override
+    public boolean equals(Object object) {
+        return object instanceof GroupByNode && groupBy == ((GroupByNode) object).groupBy && super.equals(object);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + System.identityHashCode(groupBy);
+    }
+}
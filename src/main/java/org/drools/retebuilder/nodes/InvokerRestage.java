@@ -0,0 +1,85 @@
+package org.drools.retebuilder.nodes;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.drools.core.common.InternalFactHandle;
+import org.drools.core.common.InternalWorkingMemory;
+import org.drools.core.common.PropagationContextFactory;
+import org.drools.core.reteoo.FromNode;
+import org.drools.core.reteoo.FromNode.FromMemory;
+import org.drools.core.reteoo.LeftInputAdapterNode;
+import org.drools.core.reteoo.LeftInputAdapterNode.LiaNodeMemory;
+import org.drools.core.reteoo.LeftTuple;
+import org.drools.core.reteoo.NodeTypeEnums;
+import org.drools.core.reteoo.SegmentMemory;
+import org.drools.core.spi.PropagationContext;
+import org.drools.core.spi.Tuple;
+
+/**
+ * Stages again, as an update, a left tuple already evaluated by an invoker node, so that the node produces
+ * the results that have been made available for it after its evaluation.
+ *
+ * The update has a propagation context of its own, marked as a restage, by which the invoker nodes reached by it
+ * can tell it from an update of the facts of the tuple and keep the results they already have.
+ */
+public final class InvokerRestage {
+
+    // the propagation contexts of the updates staged by all the invoker nodes
+    private static final Set<PropagationContext> RESTAGES =
+            Collections.synchronizedSet( Collections.newSetFromMap( new WeakHashMap<PropagationContext, Boolean>() ) );
+
+    private InvokerRestage() { }
+
+    public static boolean isRestage(PropagationContext ctx) {
+        return RESTAGES.contains(ctx);
+    }
+
+    /**
+     * Stages as an update the ancestor of the given tuple entering the segment of the invoker node, so that only
+     * the rules sharing that segment are re-evaluated. Returns false if the tuple has already been deleted.
+     */
+    public static boolean restage(FromNode invokerNode, LeftTuple leftTuple, InternalWorkingMemory wm) {
+        LeftTuple root = leftTuple;
+        while (root.getParent() != null) {
+            root = (LeftTuple) root.getParent();
+        }
+        if (!root.getFactHandle().isValid()) {
+            return false;
+        }
+
+        PropagationContext restage = createRestageContext(root.getFactHandle(), wm);
+        SegmentMemory smem = ((FromMemory) wm.getNodeMemory(invokerNode)).getSegmentMemory();
+        if (smem.getRootNode().getType() == NodeTypeEnums.LeftInputAdapterNode) {
+            LeftInputAdapterNode liaNode = (LeftInputAdapterNode) smem.getRootNode();
+            LiaNodeMemory lm = (LiaNodeMemory) wm.getNodeMemory(liaNode);
+            LeftInputAdapterNode.doUpdateObject(root, restage, wm, liaNode, true, lm, smem);
+            return true;
+        }
+
+        // the segment starts after a node shared with other rules: only the tuple entering it is staged
+        LeftTuple entering = leftTuple;
+        while (entering.getTupleSink() != smem.getRootNode()) {
+            entering = (LeftTuple) entering.getParent();
+        }
+        if (entering.getStagedType() == Tuple.NONE) {
+            entering.setPropagationContext(restage);
+            smem.getStagedLeftTuples().addUpdate(entering);
+            smem.notifyRuleLinkSegment(wm);
+        }
+        return true;
+    }
+
+    private static PropagationContext createRestageContext(InternalFactHandle handle, InternalWorkingMemory wm) {
+        PropagationContextFactory pctxFactory = wm.getKnowledgeBase().getConfiguration().getComponentFactory().getPropagationContextFactory();
+        PropagationContext restage = pctxFactory.createPropagationContext(wm.getNextPropagationIdCounter(),
+                                                                          PropagationContext.Type.MODIFICATION,
+                                                                          null,
+                                                                          null,
+                                                                          handle,
+                                                                          handle.getEntryPointId());
+        RESTAGES.add(restage);
+        return restage;
+    }
+}
@@ -1,23 +1,152 @@
 package org.drools.retebuilder.nodes;
 
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.drools.core.common.InternalWorkingMemory;
-import org.drools.core.common.TupleSets;
+import org.drools.core.phreak.PropagationEntry;
 import org.drools.core.reteoo.LeftTuple;
-import org.drools.core.reteoo.LeftTupleSink;
-import org.drools.core.reteoo.PathMemory;
-import org.drools.core.reteoo.SegmentMemory;
-import org.drools.core.reteoo.TimerNode;
+import org.drools.core.spi.PropagationContext;
+import org.drools.core.spi.Tuple;
+import org.drools.retebuilder.BlockingWork;
 
+/**
+ * Keeps track, for a single session, of the asynchronous invocations started by an {@link AsyncInvokerNode}.
+ *
+ * An invocation is started the first time a left tuple reaches the node, and until it completes the node produces
+ * no result for that tuple, so the firing thread never waits and the evaluation of the other rules goes on.
+ * When the future completes, a propagation entry is queued on the session; it is executed by the engine thread,
+ * which stages the tuple again through {@link InvokerRestage}, so that only the rules sharing this node are
+ * re-evaluated. When that update reaches this node again the completed result is found and propagated as a child
+ * left tuple, while the sibling tuples re-evaluated by the same update keep their invocations, also when they reach
+ * another invoker node.
+ * Any other update of the tuple, e.g. the modification of one of its facts, drops the cached invocation and
+ * invokes the function again, since the arguments could have been changed in place.
+ * A failed invocation produces no result: its failure is recorded in the {@link BlockingWork} of the session when its
+ * propagation entry is executed, and then rethrown by the fireAllRules having executed it.
+ *
+ * The invocations are weakly referenced by their tuples, so they are released together with the deleted tuples.
+ * They are only accessed by the engine thread.
+ */
 public class PhreakAsyncInvokerNode {
 
-    public void doNode(TimerNode timerNode,
-                       PathMemory pmem,
-                       SegmentMemory smem,
-                       LeftTupleSink sink,
-                       InternalWorkingMemory wm,
-                       TupleSets<LeftTuple> srcLeftTuples,
-                       TupleSets<LeftTuple> trgLeftTuples,
-                       TupleSets<LeftTuple> stagedLeftTuples) {
+    private final AsyncInvokerNode invokerNode;
+    private final AsyncInvoker invoker;
+    private final Map<Tuple, Invocation> invocations = new WeakHashMap<Tuple, Invocation>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public PhreakAsyncInvokerNode(AsyncInvokerNode invokerNode, AsyncInvoker invoker) {
+        this.invokerNode = invokerNode;
+        this.invoker = invoker;
+    }
+
+    public Iterator<?> getResults(Tuple tuple, Object[] args, PropagationContext ctx, InternalWorkingMemory wm) {
+        Invocation invocation = invocations.get(tuple);
+        if (invocation == null || !invocation.hasArgs(args) || (invocation.context != ctx && !InvokerRestage.isRestage(ctx))) {
+            invocation = new Invocation(args, ctx, invoker.invoke(args, wm));
+            invocations.put(tuple, invocation);
+            Invocation started = invocation;
+            if (!started.future.isDone()) {
+                inFlight.incrementAndGet();
+                started.future.whenComplete( (result, error) -> {
+                    inFlight.decrementAndGet();
+                    wm.addPropagation( new CompletionEntry( tuple, started ) );
+                } );
+            } else if (started.future.isCompletedExceptionally()) {
+                // reported by the engine thread once the current evaluation is over
+                wm.addPropagation( new CompletionEntry( tuple, started ) );
+            }
+        }
+        return invocation.future.isDone() && !invocation.future.isCompletedExceptionally() ?
+               invoker.getResults(invocation.future) :
+               Collections.emptyIterator();
+    }
+
+    /**
+     * The number of invocations not completed yet, which can be read by any thread.
+     */
+    public int getInFlightInvocationsCount() {
+        return inFlight.get();
+    }
+
+    public interface AsyncInvoker {
+        CompletableFuture<?> invoke(Object[] args, InternalWorkingMemory wm);
+
+        /**
+         * The results propagated for a successfully completed invocation: by default the completed future itself.
+         */
+        default Iterator<?> getResults(CompletableFuture<?> completed) {
+            return Collections.singletonList( completed ).iterator();
+        }
+    }
+
+    private static Throwable failureOf(CompletableFuture<?> failed) {
+        try {
+            failed.join();
+            throw new IllegalStateException("The invocation has not failed");
+        } catch (CompletionException e) {
+            return e.getCause() != null ? e.getCause() : e;
+        } catch (CancellationException e) {
+            return e;
+        }
+    }
+
+    private static class Invocation {
+        private final Object[] args;
+        private final PropagationContext context;
+        private final CompletableFuture<?> future;
+
+        private Invocation(Object[] args, PropagationContext context, CompletableFuture<?> future) {
+            this.args = args;
+            this.context = context;
+            this.future = future;
+        }
+
+        private boolean hasArgs(Object[] otherArgs) {
+            if (args.length != otherArgs.length) {
+                return false;
+            }
+            for (int i = 0; i < args.length; i++) {
+                if (!Objects.equals(args[i], otherArgs[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private class CompletionEntry extends PropagationEntry.AbstractPropagationEntry {
+        private final Tuple tuple;
+        private final Invocation invocation;
+
+        private CompletionEntry(Tuple tuple, Invocation invocation) {
+            this.tuple = tuple;
+            this.invocation = invocation;
+        }
 
+        @Override
+        public void execute(InternalWorkingMemory wm) {
+            // a newer invocation for the same tuple supersedes this one
+            if (invocations.get(tuple) != invocation) {
+                return;
+            }
+            if (invocation.future.isCompletedExceptionally()) {
+                // the next update of the tuple invokes the function again
+                invocations.remove(tuple);
+                BlockingWork.of(wm).failed(failureOf(invocation.future));
+                return;
+            }
+            if (!InvokerRestage.restage(invokerNode, (LeftTuple) tuple, wm)) {
+                // the tuple has been deleted while the invocation was in flight
+                invocations.remove(tuple);
+            }
+        }
     }
 }
@@ -0,0 +1,148 @@
+package org.drools.retebuilder.nodes;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.function.Function;
+
+import org.drools.core.common.InternalFactHandle;
+import org.drools.core.common.InternalWorkingMemory;
+import org.drools.core.phreak.PropagationEntry;
+import org.drools.core.reteoo.FromNode;
+import org.drools.core.reteoo.LeftTuple;
+import org.drools.core.spi.PropagationContext;
+import org.drools.core.spi.Tuple;
+
+/**
+ * Diffs by key, for a single session, the results produced by a reactive invoker for an updated left tuple
+ * against the ones it produced before, which are the objects of the fact handles of the child tuples.
+ *
+ * The from node modifies the child tuples of the results it has been given before and retracts or inserts the others,
+ * so a new result having the same key of a previous one is returned as the object of the existing fact handle.
+ * When it isn't equal to that object, its values must reach the rules as a modify of the child tuple: the change is
+ * recorded and a propagation entry queued on the session. The engine thread executes it once the current evaluation
+ * is over: it sets the changed results in their fact handles and stages the tuple again through
+ * {@link InvokerRestage}; that update reaches the from node with the recorded results, without invoking the function
+ * again, and the from node propagates the modify of the child tuples with their new values.
+ *
+ * The changes are weakly referenced by their tuples and only accessed by the engine thread.
+ */
+public class PhreakReactiveInvokerNode {
+
+    private final FromNode invokerNode;
+    private final Function<Object, ?> resultKey;
+    private final Map<Tuple, Changes> changes = new WeakHashMap<Tuple, Changes>();
+
+    public PhreakReactiveInvokerNode(FromNode invokerNode, Function<Object, ?> resultKey) {
+        this.invokerNode = invokerNode;
+        this.resultKey = resultKey;
+    }
+
+    public Iterator<?> getResults(Tuple tuple, Object[] args, PropagationContext ctx, InternalWorkingMemory wm,
+                                  Function<Object[], Iterator<?>> invocation) {
+        Changes applied = changes.remove(tuple);
+        List<Object> results;
+        if (applied != null && applied.applied && applied.hasArgs(args) && InvokerRestage.isRestage(ctx)) {
+            results = applied.results;
+        } else {
+            results = new ArrayList<Object>();
+            invocation.apply(args).forEachRemaining(results::add);
+        }
+
+        Map<Object, InternalFactHandle> previousResults = previousResults((LeftTuple) tuple);
+        if (previousResults.isEmpty()) {
+            return results.iterator();
+        }
+        List<Object> propagated = new ArrayList<Object>(results.size());
+        Changes changed = null;
+        for (Object result : results) {
+            InternalFactHandle previous = result != null ? previousResults.get( resultKey.apply( result ) ) : null;
+            if (previous == null) {
+                propagated.add( result );
+                continue;
+            }
+            propagated.add( previous.getObject() );
+            if (!result.equals( previous.getObject() )) {
+                if (changed == null) {
+                    changed = new Changes(args, results);
+                }
+                changed.handles.put( previous, result );
+            }
+        }
+        if (changed != null) {
+            changes.put(tuple, changed);
+            wm.addPropagation( new ChangeEntry( tuple, changed ) );
+        }
+        return propagated.iterator();
+    }
+
+    /**
+     * The fact handles of the results previously propagated for the given tuple, by key, read from its child tuples.
+     */
+    private Map<Object, InternalFactHandle> previousResults(LeftTuple tuple) {
+        Map<Object, InternalFactHandle> previousResults = new HashMap<Object, InternalFactHandle>();
+        for (LeftTuple child = tuple.getFirstChild(); child != null; child = child.getHandleNext()) {
+            InternalFactHandle handle = child.getRightParent().getFactHandle();
+            if (handle.isValid() && handle.getObject() != null) {
+                previousResults.put( resultKey.apply( handle.getObject() ), handle );
+            }
+        }
+        return previousResults;
+    }
+
+    private static class Changes {
+        private final Object[] args;
+        private final List<Object> results;
+        private final Map<InternalFactHandle, Object> handles = new IdentityHashMap<InternalFactHandle, Object>();
+        private boolean applied;
+
+        private Changes(Object[] args, List<Object> results) {
+            this.args = args;
+            this.results = results;
+        }
+
+        private boolean hasArgs(Object[] otherArgs) {
+            if (args.length != otherArgs.length) {
+                return false;
+            }
+            for (int i = 0; i < args.length; i++) {
+                if (!Objects.equals(args[i], otherArgs[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private class ChangeEntry extends PropagationEntry.AbstractPropagationEntry {
+        private final Tuple tuple;
+        private final Changes changed;
+
+        private ChangeEntry(Tuple tuple, Changes changed) {
+            this.tuple = tuple;
+            this.changed = changed;
+        }
+
+        @Override
+        public void execute(InternalWorkingMemory wm) {
+            // a newer evaluation of the same tuple supersedes these changes
+            if (changes.get(tuple) != changed) {
+                return;
+            }
+            for (Map.Entry<InternalFactHandle, Object> entry : changed.handles.entrySet()) {
+                if (entry.getKey().isValid()) {
+                    entry.getKey().setObject( entry.getValue() );
+                }
+            }
+            changed.applied = true;
+            if (!InvokerRestage.restage(invokerNode, (LeftTuple) tuple, wm)) {
+                changes.remove(tuple);
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.drools.retebuilder.nodes;
+
+import org.drools.core.common.InternalFactHandle;
+import org.drools.core.common.InternalWorkingMemory;
+import org.drools.core.reteoo.BetaNode;
+import org.drools.core.reteoo.RightTuple;
+import org.drools.retebuilder.CanonicalAgenda;
+
+/**
+ * Counts, for a session, the facts reaching the right input of a {@link CountingExistsNode} or a {@link CountingNotNode},
+ * and holds the single {@link PresenceToken} feeding the right memory of the node while the count is positive.
+ */
+public final class PresenceCounter {
+
+    private long count;
+    private InternalFactHandle token;
+
+    private PresenceCounter() { }
+
+    static PresenceCounter of(BetaNode node, InternalWorkingMemory wm) {
+        return ((CanonicalAgenda) wm.getAgenda()).getNodeState(node, PresenceCounter::new);
+    }
+
+    /**
+     * Counts a fact, returning the handle of the new token to be inserted if it is the first one, otherwise null.
+     */
+    InternalFactHandle increment(InternalWorkingMemory wm) {
+        if (count++ > 0) {
+            return null;
+        }
+        token = wm.getFactHandleFactory().newFactHandle(PresenceToken.INSTANCE, null, wm, null);
+        return token;
+    }
+
+    /**
+     * Uncounts a fact, returning the right tuple of the token to be deleted if it was the last one, otherwise null.
+     */
+    RightTuple decrement() {
+        if (--count > 0) {
+            return null;
+        }
+        RightTuple tokenTuple = token.getFirstRightTuple();
+        token.clearRightTuples();
+        token = null;
+        return tokenTuple;
+    }
+
+    /**
+     * The fact standing for the presence of at least one fact matching a counted pattern.
+     */
+    public static final class PresenceToken {
+
+        static final PresenceToken INSTANCE = new PresenceToken();
+
+        private PresenceToken() { }
+
+        @Override
+        public String toString() {
+            return "PresenceToken";
+        }
+    }
+}
@@ -6,6 +6,7 @@ import org.drools.core.rule.From;
 import org.drools.core.spi.AlphaNodeFieldConstraint;
 import org.drools.core.spi.DataProvider;
 import org.drools.retebuilder.CanonicalBuildContext;
+import org.drools.retebuilder.constraints.LambdaDataProvider;
 
 public class SyncInvokerNode extends FromNode {
 
@@ -20,7 +21,8 @@ public class SyncInvokerNode extends FromNode {
               context.isTupleMemoryEnabled(),
               context,
               from);
+        if (dataProvider instanceof LambdaDataProvider) {
+            ((LambdaDataProvider) dataProvider).setInvokerNode(this);
+        }
     }
-
-
 }
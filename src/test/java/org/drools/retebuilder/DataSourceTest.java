@@ -1,17 +1,34 @@
 package org.drools.retebuilder;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
 import org.drools.model.Rule;
 import org.drools.model.Variable;
 import org.drools.model.datasources.DataStore;
 import org.drools.model.datasources.DataStream;
+import org.drools.retebuilder.datasources.DataStoreBinding;
+import org.drools.retebuilder.datasources.DataStreamJournal;
+import org.drools.retebuilder.datasources.JournalCodec;
+import org.drools.retebuilder.datasources.LiveDataStore;
+import org.drools.retebuilder.datasources.StreamingDataStore;
 import org.junit.Test;
 import org.kie.api.runtime.KieSession;
 
+import static java.util.Arrays.asList;
 import static org.drools.model.DSL.*;
 import static org.drools.retebuilder.DataSourceBinder.bindDataSource;
+import static org.drools.retebuilder.datasources.LiveDataStore.liveStoreOf;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class DataSourceTest {
 
@@ -77,4 +94,326 @@ public class DataSourceTest {
         assertEquals("Mark is 37 years old", result.get());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testBulkLoadedDataStore() {
+        AtomicInteger evaluations = new AtomicInteger();
+        List<String> result = new ArrayList<String>();
+
+        Variable<Person> person = variableOf( type( Person.class ) );
+
+        Rule rule = rule("R")
+                .view(
+                        input(person, "persons"),
+                        expr(person, p -> evaluations.incrementAndGet() > 0 && p.getAge() % 10 == 0)
+                     )
+                .then(on(person)
+                              .execute(p -> result.add( p.getName() )));
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.addRules(rule);
+
+        KieSession ksession = kieBase.newKieSession();
+
+        List<Person> list = new ArrayList<Person>();
+        for (int i = 0; i < 5000; i++) {
+            list.add( new Person( "Person" + i, i ) );
+        }
+        bindDataSource(ksession, "persons", storeOf( list.toArray() ), 4);
+
+        ksession.fireAllRules();
+        assertEquals( 500, result.size() );
+        // the precomputed outcomes are reused by the insertion: each predicate is evaluated once per fact
+        assertEquals( 5000, evaluations.get() );
+    }
+
+    @Test
+    public void testStreamingDataStore() throws IOException {
+        AtomicReference<String> result = new AtomicReference<String>();
+
+        Variable<Person> mark = variableOf( type( Person.class ) );
+
+        Rule rule = rule("R")
+                .view(
+                        input(mark, "persons"),
+                        expr(mark, person -> person.getName().equals("Mark"))
+                     )
+                .then(on(mark)
+                              .execute(m -> result.set( m + " is " + m.getAge() + " years old" )));
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.addRules(rule);
+
+        KieSession ksession = kieBase.newKieSession();
+
+        Path file = Files.createTempFile( "persons", ".csv" );
+        try {
+            Files.write( file, asList( "Mark,37", "Edson,35", "Mario,40" ) );
+            StreamingDataStore<Person> persons = StreamingDataStore.fromLines( file, line -> {
+                String[] fields = line.split( "," );
+                return new Person( fields[0], Integer.parseInt( fields[1] ) );
+            } );
+            bindDataSource(ksession, "persons", persons);
+        } finally {
+            Files.delete( file );
+        }
+
+        ksession.fireAllRules();
+        assertEquals("Mark is 37 years old", result.get());
+    }
+
+    @Test
+    public void testFixedWidthRecordsDataStore() throws IOException {
+        List<String> result = new ArrayList<String>();
+
+        Variable<Person> person = variableOf( type( Person.class ) );
+
+        Rule rule = rule("R")
+                .view(
+                        input(person, "persons"),
+                        expr(person, p -> p.getAge() > 36)
+                     )
+                .then(on(person)
+                              .execute(p -> result.add( p.getName() + "@" + p.getAge() )));
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.addRules(rule);
+
+        KieSession ksession = kieBase.newKieSession();
+
+        // each record is a name padded to 8 bytes followed by the age as an int
+        String[] names = { "Mark", "Edson", "Mario" };
+        int[] ages = { 37, 35, 40 };
+        ByteBuffer content = ByteBuffer.allocate( names.length * 12 );
+        for (int i = 0; i < names.length; i++) {
+            byte[] name = names[i].getBytes( StandardCharsets.US_ASCII );
+            content.put( name ).put( new byte[8 - name.length] ).putInt( ages[i] );
+        }
+
+        Path file = Files.createTempFile( "persons", ".bin" );
+        try {
+            Files.write( file, content.array() );
+            StreamingDataStore<Person> persons = StreamingDataStore.fromFixedWidthRecords( file, 12, record -> {
+                byte[] name = new byte[8];
+                record.get( name );
+                return new Person( new String( name, StandardCharsets.US_ASCII ).trim(), record.getInt() );
+            } );
+            bindDataSource(ksession, "persons", persons);
+        } finally {
+            Files.delete( file );
+        }
+
+        ksession.fireAllRules();
+        assertEquals( 2, result.size() );
+        assertTrue( result.containsAll( asList( "Mark@37", "Mario@40" ) ) );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTruncatedFixedWidthRecords() throws IOException {
+        Path file = Files.createTempFile( "persons", ".bin" );
+        try {
+            // two records of 12 bytes followed by a partial one
+            Files.write( file, new byte[30] );
+            StreamingDataStore.fromFixedWidthRecords( file, 12, record -> record.getInt() );
+        } finally {
+            Files.delete( file );
+        }
+    }
+
+    @Test
+    public void testJournaledDataStream() throws IOException {
+        List<String> result = new ArrayList<String>();
+
+        Variable<Person> mark = variableOf( type( Person.class ) );
+
+        Rule rule = rule("R")
+                .view(
+                        subscribe(mark, "persons"),
+                        expr(mark, person -> person.getAge() > 36)
+                     )
+                .then(on(mark)
+                              .execute(m -> result.add( m.getName() )));
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.addRules(rule);
+
+        Path dir = Files.createTempDirectory( "journal" );
+        JournalCodec<Object> codec = personCodec();
+        try {
+            try (DataStreamJournal<Object> journal = new DataStreamJournal<Object>( dir, codec )) {
+                KieSession ksession = kieBase.newKieSession();
+                DataStream persons = newDataStream();
+                bindDataSource( ksession, "persons", persons, journal );
+
+                persons.send( new Person( "Mark", 37 ) );
+                persons.send( new Person( "Edson", 35 ) );
+                ksession.fireAllRules();
+            }
+            assertEquals( asList( "Mark" ), result );
+
+            // simulates a restart: the new session gets the journaled events before the new ones
+            result.clear();
+            try (DataStreamJournal<Object> journal = new DataStreamJournal<Object>( dir, codec )) {
+                KieSession ksession = kieBase.newKieSession();
+                DataStream persons = newDataStream();
+                bindDataSource( ksession, "persons", persons, journal );
+
+                persons.send( new Person( "Mario", 40 ) );
+                ksession.fireAllRules();
+                journal.checkpoint();
+            }
+            assertEquals( 2, result.size() );
+            assertTrue( result.containsAll( asList( "Mark", "Mario" ) ) );
+
+            // the events preceding the checkpoint aren't replayed anymore
+            result.clear();
+            try (DataStreamJournal<Object> journal = new DataStreamJournal<Object>( dir, codec )) {
+                KieSession ksession = kieBase.newKieSession();
+                DataStream persons = newDataStream();
+                bindDataSource( ksession, "persons", persons, journal );
+
+                persons.send( new Person( "Luca", 45 ) );
+                ksession.fireAllRules();
+            }
+            assertEquals( asList( "Luca" ), result );
+        } finally {
+            deleteDirectory( dir );
+        }
+    }
+
+    @Test
+    public void testJournalKeepsTheSegmentsNotCheckpointed() throws IOException {
+        Path dir = Files.createTempDirectory( "journal" );
+        try {
+            // segments of a few records each, retaining at most 2 of them
+            try (DataStreamJournal<Object> journal = new DataStreamJournal<Object>( dir, personCodec(), 64, 2, 1, 10 )) {
+                for (int i = 0; i < 30; i++) {
+                    journal.append( new Person( "P" + i, i ) );
+                }
+            }
+
+            List<Object> replayed = new ArrayList<Object>();
+            try (DataStreamJournal<Object> journal = new DataStreamJournal<Object>( dir, personCodec(), 64, 2, 1, 10 )) {
+                journal.replay( 8, replayed::addAll );
+                journal.checkpoint();
+                journal.append( new Person( "Last", 50 ) );
+            }
+            assertEquals( 30, replayed.size() );
+
+            replayed.clear();
+            try (DataStreamJournal<Object> journal = new DataStreamJournal<Object>( dir, personCodec(), 64, 2, 1, 10 )) {
+                journal.replay( 8, replayed::addAll );
+            }
+            assertEquals( asList( new Person( "Last", 50 ) ), replayed );
+        } finally {
+            deleteDirectory( dir );
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAppendToClosedJournal() throws IOException {
+        Path dir = Files.createTempDirectory( "journal" );
+        try {
+            DataStreamJournal<Object> journal = new DataStreamJournal<Object>( dir, personCodec() );
+            journal.close();
+            journal.append( new Person( "Mark", 37 ) );
+        } finally {
+            deleteDirectory( dir );
+        }
+    }
+
+    private static JournalCodec<Object> personCodec() {
+        return new JournalCodec<Object>() {
+            @Override
+            public byte[] encode( Object event ) {
+                Person p = (Person) event;
+                return ( p.getName() + "," + p.getAge() ).getBytes( StandardCharsets.UTF_8 );
+            }
+
+            @Override
+            public Object decode( byte[] record ) {
+                String[] fields = new String( record, StandardCharsets.UTF_8 ).split( "," );
+                return new Person( fields[0], Integer.parseInt( fields[1] ) );
+            }
+        };
+    }
+
+    private static void deleteDirectory( Path dir ) throws IOException {
+        try (Stream<Path> files = Files.list( dir )) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete( file );
+            }
+        }
+        Files.delete( dir );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyJournalRecordIsRejected() throws IOException {
+        Path dir = Files.createTempDirectory( "journal" );
+        JournalCodec<Object> codec = new JournalCodec<Object>() {
+            @Override
+            public byte[] encode( Object event ) {
+                return new byte[0];
+            }
+
+            @Override
+            public Object decode( byte[] record ) {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        try (DataStreamJournal<Object> journal = new DataStreamJournal<Object>( dir, codec )) {
+            journal.append( "" );
+        } finally {
+            deleteDirectory( dir );
+        }
+    }
+
+    @Test
+    public void testLiveDataStore() {
+        List<String> result = new ArrayList<String>();
+
+        Variable<Person> person = variableOf( type( Person.class ) );
+
+        Rule rule = rule("R")
+                .view(
+                        input(person, "persons"),
+                        expr(person, p -> p.getAge() > 36)
+                     )
+                .then(on(person)
+                              .execute(p -> result.add( p.getName() )));
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.addRules(rule);
+
+        KieSession ksession = kieBase.newKieSession();
+
+        Person mark = new Person( "Mark", 37 );
+        Person edson = new Person( "Edson", 35 );
+        LiveDataStore<Person> persons = liveStoreOf( mark, edson );
+        DataStoreBinding binding = bindDataSource(ksession, "persons", persons);
+
+        ksession.fireAllRules();
+        assertEquals( asList( "Mark" ), result );
+
+        result.clear();
+        persons.add( new Person( "Mario", 40 ) );
+        edson.setAge( 38 );
+        persons.update( edson );
+        persons.remove( mark );
+
+        ksession.fireAllRules();
+        assertEquals( 2, result.size() );
+        assertTrue( result.containsAll( asList( "Mario", "Edson" ) ) );
+        assertEquals( 2, ksession.getEntryPoint( "persons" ).getObjects().size() );
+
+        // once unbound the changes of the store don't reach the session anymore
+        result.clear();
+        binding.close();
+        persons.add( new Person( "Luca", 45 ) );
+
+        ksession.fireAllRules();
+        assertTrue( result.isEmpty() );
+        assertEquals( 2, ksession.getEntryPoint( "persons" ).getObjects().size() );
+        ksession.dispose();
+    }
+}
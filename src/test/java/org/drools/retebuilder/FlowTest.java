@@ -1,20 +1,70 @@
 package org.drools.retebuilder;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
+import org.drools.core.base.ClassObjectType;
+import org.drools.core.reteoo.AlphaNode;
+import org.drools.core.reteoo.ObjectTypeNode;
+import org.drools.core.reteoo.Sink;
+import org.drools.core.rule.EntryPointId;
 import org.drools.model.Index.ConstraintType;
 import org.drools.model.Rule;
 import org.drools.model.Variable;
+import org.drools.retebuilder.accumulate.CountMinSketch;
+import org.drools.retebuilder.accumulate.Group;
+import org.drools.retebuilder.accumulate.HyperLogLog;
+import org.drools.retebuilder.accumulate.IntExtractor;
+import org.drools.retebuilder.accumulate.KllSketch;
+import org.drools.retebuilder.accumulate.MutableLong;
+import org.drools.retebuilder.accumulate.OrderedAccumulates;
+import org.drools.retebuilder.accumulate.PrimitiveSum;
+import org.drools.retebuilder.accumulate.SketchAccumulates;
+import org.drools.retebuilder.adapters.AccumulateAdapter;
+import org.drools.retebuilder.nodes.CountingExistsNode;
+import org.drools.retebuilder.nodes.CountingNotNode;
 import org.junit.Test;
+import org.kie.api.KieServices;
+import org.kie.api.event.rule.AfterMatchFiredEvent;
+import org.kie.api.event.rule.DefaultAgendaEventListener;
+import org.kie.api.event.rule.DefaultRuleRuntimeEventListener;
+import org.kie.api.event.rule.ObjectDeletedEvent;
+import org.kie.api.event.rule.ObjectInsertedEvent;
+import org.kie.api.event.rule.ObjectUpdatedEvent;
 import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.rule.FactHandle;
+import org.kie.api.runtime.rule.Match;
 
 import static java.util.Arrays.asList;
+import static org.drools.retebuilder.InvokerOptions.invokerOptions;
+import static org.drools.retebuilder.accumulate.CollectList.collectList;
+import static org.drools.retebuilder.accumulate.GroupBy.groupBy;
+import static org.drools.retebuilder.accumulate.PrimitiveAccumulates.avgInt;
+import static org.drools.retebuilder.accumulate.PrimitiveAccumulates.count;
+import static org.drools.retebuilder.accumulate.PrimitiveAccumulates.maxInt;
+import static org.drools.retebuilder.accumulate.PrimitiveAccumulates.minInt;
+import static org.drools.retebuilder.accumulate.PrimitiveAccumulates.sumInt;
+import static org.drools.retebuilder.accumulate.SketchAccumulates.distinctCount;
+import static org.drools.retebuilder.accumulate.SketchAccumulates.frequencies;
+import static org.drools.retebuilder.accumulate.SketchAccumulates.quantile;
+import static org.drools.retebuilder.RuleOptions.ruleOptions;
 import static org.drools.model.DSL.*;
 import static org.drools.model.functions.accumulate.Average.avg;
+import static org.drools.model.functions.accumulate.Min.min;
 import static org.drools.model.functions.accumulate.Sum.sum;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class FlowTest {
 
@@ -134,70 +184,1247 @@ public class FlowTest {
         assertEquals("total = 77; average = 38.5", result.value);
     }
 
+    @Test
+    public void testPrimitiveAccumulate() {
+        Result result = new Result();
+        Result extremes = new Result();
+
+        Variable<Person> person = variableOf( type( Person.class ) );
+        Variable<Integer> resultSum = variableOf( type( Integer.class ) );
+        Variable<Double> resultAvg = variableOf( type( Double.class ) );
+        Variable<Integer> resultMin = variableOf( type( Integer.class ) );
+        Variable<Integer> resultMax = variableOf( type( Integer.class ) );
+
+        Rule sumAndAvg = rule("primitiveSumAndAvg")
+                .view(
+                        accumulate(expr(person, p -> p.getName().startsWith("M")),
+                                   sumInt(Person::getAge).as(resultSum),
+                                   avgInt(Person::getAge).as(resultAvg))
+                     )
+                .then(
+                        on(resultSum, resultAvg)
+                                .execute((sum, avg) -> result.value = "total = " + sum + "; average = " + avg)
+                     );
+
+        Rule minAndMax = rule("primitiveMinAndMax")
+                .view(
+                        accumulate(expr(person, p -> p.getName().startsWith("M")),
+                                   minInt(Person::getAge).as(resultMin),
+                                   maxInt(Person::getAge).as(resultMax))
+                     )
+                .then(
+                        on(resultMin, resultMax)
+                                .execute((min, max) -> extremes.value = "min = " + min + "; max = " + max)
+                     );
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.addRules(sumAndAvg, minAndMax);
+
+        KieSession ksession = kieBase.newKieSession();
+
+        ksession.insert(new Person("Mark", 37));
+        ksession.insert(new Person("Edson", 35));
+        FactHandle mario = ksession.insert(new Person("Mario", 40));
+
+        ksession.fireAllRules();
+        assertEquals("total = 77; average = 38.5", result.value);
+        assertEquals("min = 37; max = 40", extremes.value);
+
+        ksession.delete(mario);
+        ksession.fireAllRules();
+        assertEquals("total = 37; average = 37.0", result.value);
+        assertEquals("min = 37; max = 37", extremes.value);
+    }
+
+    @Test
+    public void testReversibleOrderedAccumulate() {
+        Result result = new Result();
+
+        Variable<Person> person = variableOf( type( Person.class ) );
+        Variable<Integer> resultMin = variableOf( type( Integer.class ) );
+        Variable<List> resultTop = variableOf( type( List.class ) );
+
+        Rule rule = rule("orderedAccumulate")
+                .view(
+                        accumulate(expr(person, p -> p.getAge() > 0),
+                                   OrderedAccumulates.min(Person::getAge).as(resultMin),
+                                   OrderedAccumulates.topK(2, Person::getAge).as(resultTop))
+                     )
+                .then(
+                        on(resultMin, resultTop)
+                                .execute((min, top) -> result.value = "min = " + min + "; top = " + top)
+                     );
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.addRules(rule);
+
+        KieSession ksession = kieBase.newKieSession();
+
+        FactHandle edson = ksession.insert(new Person("Edson", 35));
+        ksession.insert(new Person("Mark", 37));
+        FactHandle mario = ksession.insert(new Person("Mario", 40));
+        ksession.insert(new Person("Sofia", 36));
+
+        ksession.fireAllRules();
+        assertEquals("min = 35; top = [40, 37]", result.value);
+
+        // retracting the current minimum and maximum updates the results without rescanning the other facts
+        ksession.delete(edson);
+        ksession.delete(mario);
+        ksession.fireAllRules();
+        assertEquals("min = 36; top = [37, 36]", result.value);
+    }
+
+    @Test
+    public void testGroupByAccumulate() {
+        List<String> result = new ArrayList<String>();
+
+        Variable<Person> person = variableOf( type( Person.class ) );
+        Variable<Group> group = variableOf( type( Group.class ) );
+
+        Rule rule = rule("groupBy")
+                .view(
+                        accumulate(expr(person, p -> p.getAge() > 0),
+                                   groupBy(Person::getTown, sum(Person::getAge)).as(group))
+                     )
+                .then(
+                        on(group).execute(g -> result.add(g.toString()))
+                     );
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.addRules(rule);
+
+        KieSession ksession = kieBase.newKieSession();
+
+        Person mark = new Person("Mark", 37, "London");
+        FactHandle markFH = ksession.insert(mark);
+        FactHandle edson = ksession.insert(new Person("Edson", 35, "Milan"));
+        ksession.insert(new Person("Mario", 40, "Milan"));
+
+        ksession.fireAllRules();
+        assertEquals(2, result.size());
+        assertTrue(result.containsAll(asList("London=37", "Milan=75")));
+
+        // only the match of the changed group is fired again
+        result.clear();
+        ksession.delete(edson);
+        ksession.fireAllRules();
+        assertEquals(asList("Milan=40"), result);
+
+        // the group is recomputed, but its value doesn't change
+        result.clear();
+        mark.setName("Marco");
+        ksession.update(markFH, mark);
+        ksession.fireAllRules();
+        assertTrue(result.isEmpty());
+
+        result.clear();
+        mark.setAge(38);
+        ksession.update(markFH, mark);
+        ksession.fireAllRules();
+        assertEquals(asList("London=38"), result);
+    }
+
+    @Test
+    public void testGroupByMovingFactsBetweenGroups() {
+        List<String> result = new ArrayList<String>();
+
+        Variable<Person> person = variableOf( type( Person.class ) );
+        Variable<Group> group = variableOf( type( Group.class ) );
+
+        Rule rule = rule("groupByMin")
+                .view(
+                        accumulate(expr(person, p -> p.getAge() > 0),
+                                   groupBy(Person::getTown, min(Person::getAge)).as(group))
+                     )
+                .then(
+                        on(group).execute(g -> result.add(g.toString()))
+                     );
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.addRules(rule);
+
+        KieSession ksession = kieBase.newKieSession();
+
+        ksession.insert(new Person("Mark", 37, "London"));
+        Person edson = new Person("Edson", 35, "Milan");
+        FactHandle edsonFH = ksession.insert(edson);
+        Person mario = new Person("Mario", 40, "Milan");
+        FactHandle marioFH = ksession.insert(mario);
+
+        ksession.fireAllRules();
+        assertEquals(2, result.size());
+        assertTrue(result.containsAll(asList("London=37", "Milan=35")));
+
+        // the min can't be reversed: Milan is accumulated again from its facts, and neither minimum changes
+        result.clear();
+        mario.setTown("London");
+        ksession.update(marioFH, mario);
+        ksession.fireAllRules();
+        assertTrue(result.isEmpty());
+
+        // the last fact of Milan leaves it, and the group is deleted
+        result.clear();
+        edson.setTown("London");
+        ksession.update(edsonFH, edson);
+        ksession.fireAllRules();
+        assertEquals(asList("London=35"), result);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGroupByWithOtherFunctions() {
+        Variable<Person> person = variableOf( type( Person.class ) );
+        Variable<Group> group = variableOf( type( Group.class ) );
+        Variable<Integer> resultSum = variableOf( type( Integer.class ) );
+
+        Rule rule = rule("groupByWithOtherFunctions")
+                .view(
+                        accumulate(expr(person, p -> p.getAge() > 0),
+                                   groupBy(Person::getTown, sum(Person::getAge)).as(group),
+                                   sum(Person::getAge).as(resultSum))
+                     )
+                .then(
+                        on(group, resultSum).execute((g, s) -> { })
+                     );
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        // the total would be shared by the matches of all the groups
+        kieBase.addRules(rule);
+    }
+
+    @Test
+    public void testParallelAccumulate() {
+        Result result = new Result();
+        AtomicInteger combinedPartials = new AtomicInteger();
+
+        Variable<Person> person = variableOf( type( Person.class ) );
+        Variable<Long> resultSum = variableOf( type( Long.class ) );
+        Variable<Long> resultCount = variableOf( type( Long.class ) );
+
+        // the partial contexts are combined only when the facts are folded across the fork-join pool
+        PrimitiveSum.OfLong<Person> sumAges = new PrimitiveSum.OfLong<Person>(Person::getAge) {
+            @Override
+            public void combine(MutableLong target, MutableLong partial) {
+                combinedPartials.incrementAndGet();
+                super.combine(target, partial);
+            }
+        };
+
+        Rule rule = rule("parallelAccumulate")
+                .view(
+                        accumulate(expr(person, p -> p.getAge() > 0),
+                                   sumAges.as(resultSum),
+                                   count().as(resultCount))
+                     )
+                .then(
+                        on(resultSum, resultCount)
+                                .execute((sum, count) -> result.value = "total = " + sum + "; count = " + count)
+                     );
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.addRules(rule);
+
+        KieSession ksession = kieBase.newKieSession();
+
+        // enough facts to be folded across the fork-join pool when the accumulate is first evaluated
+        int size = AccumulateAdapter.PARALLEL_THRESHOLD * 3;
+        long total = 0;
+        FactHandle last = null;
+        for (int i = 1; i <= size; i++) {
+            last = ksession.insert(new Person("Person" + i, i % 100 + 1));
+            total += i % 100 + 1;
+        }
+
+        ksession.fireAllRules();
+        assertEquals("total = " + total + "; count = " + size, result.value);
+        assertTrue(combinedPartials.get() > 0);
+
+        ksession.delete(last);
+        ksession.fireAllRules();
+        assertEquals("total = " + (total - (size % 100 + 1)) + "; count = " + (size - 1), result.value);
+    }
+
+    @Test
+    public void testPersistentCollect() {
+        List<List<Person>> results = new ArrayList<List<Person>>();
+
+        Variable<Person> person = variableOf( type( Person.class ) );
+        Variable<List> collected = variableOf( type( List.class ) );
+
+        Rule rule = rule("persistentCollect")
+                .view(
+                        accumulate(expr(person, p -> p.getName().startsWith("M")),
+                                   collectList().as(collected))
+                     )
+                .then(
+                        on(collected).execute(results::add)
+                     );
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.addRules(rule);
+
+        KieSession ksession = kieBase.newKieSession();
+
+        Person mark = new Person("Mark", 37);
+        Person mario = new Person("Mario", 40);
+        ksession.insert(mark);
+        ksession.insert(new Person("Edson", 35));
+        FactHandle marioFH = ksession.insert(mario);
+
+        ksession.fireAllRules();
+        assertEquals(asList(mark, mario), results.get(0));
+
+        ksession.delete(marioFH);
+        ksession.fireAllRules();
+        assertEquals(asList(mark), results.get(1));
+
+        // the list of the previous firing is a snapshot sharing its structure with the new one
+        assertEquals(asList(mark, mario), results.get(0));
+    }
+
+    @Test
+    public void testSketchAccumulate() {
+        List<Object> results = new ArrayList<Object>();
+
+        Variable<Person> person = variableOf( type( Person.class ) );
+        Variable<Long> resultDistinct = variableOf( type( Long.class ) );
+        Variable<Double> resultMedian = variableOf( type( Double.class ) );
+        Variable<CountMinSketch> resultFrequencies = variableOf( type( CountMinSketch.class ) );
+
+        Rule rule = rule("sketchAccumulate")
+                .view(
+                        accumulate(expr(person, p -> p.getAge() > 0),
+                                   distinctCount(Person::getName).as(resultDistinct),
+                                   quantile(0.5, SketchAccumulates.DEFAULT_KLL_K, 42, Person::getAge).as(resultMedian),
+                                   frequencies(0.001, 0.01, Person::getTown).as(resultFrequencies))
+                     )
+                .then(
+                        on(resultDistinct, resultMedian, resultFrequencies)
+                                .execute((distinct, median, frequencies) -> {
+                                    results.clear();
+                                    results.add(distinct);
+                                    results.add(median);
+                                    results.add(frequencies);
+                                })
+                     );
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.addRules(rule);
+
+        KieSession ksession = kieBase.newKieSession();
+
+        int size = 10000;
+        List<FactHandle> handles = new ArrayList<FactHandle>();
+        for (int i = 1; i <= size; i++) {
+            handles.add(ksession.insert(new Person("Person" + (i % 3000), i, i % 10 == 0 ? "London" : "Milan")));
+        }
+        ksession.fireAllRules();
+
+        double distinctError = new HyperLogLog(SketchAccumulates.DEFAULT_HLL_PRECISION).getErrorBound();
+        double rankError = new KllSketch(SketchAccumulates.DEFAULT_KLL_K).getErrorBound();
+
+        long distinct = (Long) results.get(0);
+        assertTrue(Math.abs(distinct - 3000) <= 3000 * 3 * distinctError);
+
+        double median = (Double) results.get(1);
+        assertTrue(Math.abs(median - size / 2) <= size * rankError);
+
+        CountMinSketch frequencies = (CountMinSketch) results.get(2);
+        long london = frequencies.estimateCount("London");
+        assertTrue(london >= size / 10 && london <= size / 10 + size * frequencies.getErrorBound());
+
+        // the retracted values are removed from the sketches
+        int remaining = 2000;
+        for (FactHandle handle : handles.subList(remaining, size)) {
+            ksession.delete(handle);
+        }
+        ksession.fireAllRules();
+
+        distinct = (Long) results.get(0);
+        assertTrue(Math.abs(distinct - remaining) <= remaining * 3 * distinctError);
+
+        // the rank error is relative to the values both added and removed
+        median = (Double) results.get(1);
+        assertTrue(Math.abs(median - remaining / 2) <= (size + size - remaining) * rankError);
+
+        frequencies = (CountMinSketch) results.get(2);
+        london = frequencies.estimateCount("London");
+        assertTrue(london >= remaining / 10 && london <= remaining / 10 + remaining * frequencies.getErrorBound());
+    }
+
+    @Test
+    public void testMergedSketches() {
+        HyperLogLog distinct = new HyperLogLog(SketchAccumulates.DEFAULT_HLL_PRECISION);
+        HyperLogLog otherDistinct = new HyperLogLog(SketchAccumulates.DEFAULT_HLL_PRECISION);
+        HyperLogLog allDistinct = new HyperLogLog(SketchAccumulates.DEFAULT_HLL_PRECISION);
+        KllSketch ages = new KllSketch(SketchAccumulates.DEFAULT_KLL_K, 1);
+        KllSketch otherAges = new KllSketch(SketchAccumulates.DEFAULT_KLL_K, 2);
+        CountMinSketch towns = new CountMinSketch(0.001, 0.01);
+        CountMinSketch otherTowns = new CountMinSketch(0.001, 0.01);
+
+        int size = 10000;
+        for (int i = 1; i <= size; i++) {
+            String name = "Person" + (i % 3000);
+            String town = i % 10 == 0 ? "London" : "Milan";
+            allDistinct.add(name);
+            if (i % 2 == 0) {
+                distinct.add(name);
+                ages.add(i);
+                towns.add(town);
+            } else {
+                otherDistinct.add(name);
+                otherAges.add(i);
+                otherTowns.add(town);
+            }
+        }
+
+        // merging the sketches of two halves is the same as sketching the whole stream
+        distinct.merge(otherDistinct);
+        assertEquals(allDistinct.estimate(), distinct.estimate());
+
+        ages.merge(otherAges);
+        assertEquals(size, ages.size());
+        assertTrue(Math.abs(ages.quantile(0.5) - size / 2) <= size * ages.getErrorBound());
+
+        towns.merge(otherTowns);
+        assertEquals(size, towns.size());
+        long london = towns.estimateCount("London");
+        assertTrue(london >= size / 10 && london <= size / 10 + size * towns.getErrorBound());
+    }
+
+    @Test
+    public void testCountedExistsAndNot() {
+        List<String> result = new ArrayList<String>();
+
+        Variable<Person> person = any( Person.class );
+
+        Rule adults = rule("adults")
+                .view(
+                        exists(person, p -> p.getAge() >= 18)
+                     )
+                .then(
+                        execute(() -> result.add("adults"))
+                     );
+
+        Rule nobody = rule("nobody")
+                .view(
+                        not(person)
+                     )
+                .then(
+                        execute(() -> result.add("nobody"))
+                     );
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.addRules(adults, nobody);
+
+        // the facts are counted instead of being stored in the right memories of the exists and not nodes
+        ObjectTypeNode otn = kieBase.getRete().getEntryPointNode(EntryPointId.DEFAULT)
+                                    .getObjectTypeNodes().get(new ClassObjectType(Person.class));
+        Sink[] sinks = otn.getObjectSinkPropagator().getSinks();
+        assertTrue(Stream.of(sinks).anyMatch(CountingNotNode.class::isInstance));
+        assertTrue(Stream.of(sinks).filter(AlphaNode.class::isInstance)
+                             .flatMap(alpha -> Stream.of(((AlphaNode) alpha).getObjectSinkPropagator().getSinks()))
+                             .anyMatch(CountingExistsNode.class::isInstance));
+
+        KieSession ksession = kieBase.newKieSession();
+        ksession.fireAllRules();
+        assertEquals(asList("nobody"), result);
+
+        result.clear();
+        Person mario = new Person("Mario", 40);
+        FactHandle marioFH = ksession.insert(mario);
+        FactHandle sofiaFH = ksession.insert(new Person("Sofia", 12));
+        FactHandle markFH = ksession.insert(new Person("Mark", 37));
+        ksession.fireAllRules();
+        assertEquals(asList("adults"), result);
+
+        // an update making a fact stop matching is counted as well
+        result.clear();
+        mario.setAge(17);
+        ksession.update(marioFH, mario);
+        ksession.fireAllRules();
+        assertTrue(result.isEmpty());
+
+        // an update replacing the fact with another object is counted by its handle
+        ksession.update(marioFH, new Person("Mario", 18));
+        ksession.update(marioFH, new Person("Mario", 17));
+        ksession.fireAllRules();
+        assertTrue(result.isEmpty());
+
+        ksession.delete(marioFH);
+        ksession.fireAllRules();
+        assertTrue(result.isEmpty());
+
+        // when the count of adults goes back to zero the token is deleted, so a new adult fires the rule again
+        ksession.delete(markFH);
+        ksession.fireAllRules();
+        assertTrue(result.isEmpty());
+
+        FactHandle edsonFH = ksession.insert(new Person("Edson", 35));
+        ksession.fireAllRules();
+        assertEquals(asList("adults"), result);
+
+        // when nobody is left, the not is satisfied again
+        result.clear();
+        ksession.delete(sofiaFH);
+        ksession.delete(edsonFH);
+        ksession.fireAllRules();
+        assertEquals(asList("nobody"), result);
+    }
+
+    @Test
+    public void testCountedExistsInSessionWithConfiguration() {
+        List<String> result = new ArrayList<String>();
+
+        Variable<Person> person = any( Person.class );
+
+        Rule adults = rule("adults")
+                .view(
+                        exists(person, p -> p.getAge() >= 18)
+                     )
+                .then(
+                        execute(() -> result.add("adults"))
+                     );
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.addRules(adults);
+
+        // every factory method of the sessions maintains the counters
+        KieSession ksession = kieBase.newKieSession(KieServices.get().newKieSessionConfiguration(), KieServices.get().newEnvironment());
+        FactHandle marioFH = ksession.insert(new Person("Mario", 40));
+        ksession.fireAllRules();
+        assertEquals(asList("adults"), result);
+
+        result.clear();
+        ksession.delete(marioFH);
+        ksession.insert(new Person("Mark", 37));
+        ksession.fireAllRules();
+        assertEquals(asList("adults"), result);
+    }
+
+    private static IntExtractor<Person> countedAge(AtomicInteger extractions) {
+        return p -> {
+            extractions.incrementAndGet();
+            return p.getAge();
+        };
+    }
+
+    @Test
+    public void testFusedAccumulate() {
+        Result result = new Result();
+        AtomicInteger ageExtractions = new AtomicInteger();
+
+        Variable<Person> person = variableOf( type( Person.class ) );
+        Variable<Integer> resultSum = variableOf( type( Integer.class ) );
+        Variable<Double> resultAvg = variableOf( type( Double.class ) );
+
+        Rule rule = rule("fusedAccumulate")
+                .view(
+                        accumulate(expr(person, p -> p.getName().startsWith("M")),
+                                   sumInt(countedAge(ageExtractions)).as(resultSum),
+                                   avgInt(countedAge(ageExtractions)).as(resultAvg))
+                     )
+                .then(
+                        on(resultSum, resultAvg)
+                                .execute((sum, avg) -> result.value = "total = " + sum + "; average = " + avg)
+                     );
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.addRules(rule);
+
+        KieSession ksession = kieBase.newKieSession();
+
+        ksession.insert(new Person("Mark", 37));
+        ksession.insert(new Person("Edson", 35));
+        ksession.insert(new Person("Mario", 40));
+
+        ksession.fireAllRules();
+        assertEquals("total = 77; average = 38.5", result.value);
+        // the age is extracted once per accumulated fact and shared by both functions
+        assertEquals(2, ageExtractions.get());
+    }
+
     public static int findAge(Person person) {
         return person.getAge();
     }
 
     @Test
-    public void testInlineInvocation() {
+    public void testInlineInvocation() {
+        Result result = new Result();
+
+        Variable<Person> mark = variableOf( type( Person.class ) );
+        Variable<Integer> age = variableOf( type( Integer.class ) );
+
+        Rule rule = rule("SyncInvocation")
+                .view(
+                        input(mark),
+                        expr(mark, person -> person.getName().equals("Mark")),
+                        set(age).invoking(mark, FlowTest::findAge)
+                     )
+                .then(on(mark, age)
+                              .execute((m, a) -> result.value = m + " is " + a + " years old"));
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.addRules(rule);
+
+        KieSession ksession = kieBase.newKieSession();
+
+        ksession.insert(new Person("Mark", 37));
+        ksession.insert(new Person("Edson", 35));
+        ksession.insert(new Person("Mario", 40));
+
+        ksession.fireAllRules();
+        assertEquals("Mark is 37 years old", result.value);
+    }
+
+    @Test
+    public void testInlineInvocationIterable() {
+        List<String> result = new ArrayList<String>();
+
+        Variable<Person> mario = variableOf( type( Person.class ) );
+        Variable<Person> parent = variableOf( type( Person.class ) );
+
+        Rule rule = rule("SyncInvocation")
+                .view(
+                        input(mario),
+                        expr(mario, person -> person.getName().equals("Mario")),
+                        set(parent).in(mario, Person::getParents)
+                     )
+                .then(on(mario, parent)
+                              .execute((m, p) -> result.add(p + " is parent of " + m)));
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.addRules(rule);
+
+        KieSession ksession = kieBase.newKieSession();
+
+        ksession.insert(new Person("Mark", 37));
+        ksession.insert(new Person("Edson", 35));
+        ksession.insert(new Person("Mario", 40)
+                                .setParents(asList(new Person("Mimmo", 75),
+                                                   new Person("Tina", 65))));
+
+        ksession.fireAllRules();
+        assertEquals(2, result.size());
+        assertTrue(result.contains("Mimmo is parent of Mario"));
+        assertTrue(result.contains("Tina is parent of Mario"));
+    }
+
+    @Test
+    public void testLazyInvocationWithLimit() {
+        List<String> result = new ArrayList<String>();
+        AtomicInteger produced = new AtomicInteger();
+
+        Variable<Person> mario = variableOf( type( Person.class ) );
+        Variable<Person> child = variableOf( type( Person.class ) );
+
+        // an endless sequence of children, produced only as far as the from node consumes it
+        Rule rule = rule("LazyInvocation")
+                .view(
+                        input(mario),
+                        expr(mario, person -> person.getName().equals("Mario")),
+                        set(child).in(mario, p -> () -> Stream.iterate( 1, i -> i + 1 )
+                                                               .peek( i -> produced.incrementAndGet() )
+                                                               .map( i -> new Person( "Child" + i, i ) )
+                                                               .iterator())
+                     )
+                .then(on(mario, child)
+                              .execute((m, c) -> result.add(c.getName())));
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.setInvokerOptions(child, invokerOptions().limit( 2 ));
+        kieBase.addRules(rule);
+
+        KieSession ksession = kieBase.newKieSession();
+
+        ksession.insert(new Person("Mario", 40));
+
+        ksession.fireAllRules();
+        assertEquals(2, result.size());
+        assertTrue(result.contains("Child1"));
+        assertTrue(result.contains("Child2"));
+        assertEquals(2, produced.get());
+    }
+
+    @Test
+    public void testReactiveInvocation() {
+        List<Person> result = new ArrayList<Person>();
+        Set<Match> matches = Collections.newSetFromMap( new IdentityHashMap<Match, Boolean>() );
+
+        Variable<Person> mario = variableOf( type( Person.class ) );
+        Variable<Person> parent = variableOf( type( Person.class ) );
+
+        // the age of Mimmo changes with the one of Mario, while Tina stays the same
+        Rule rule = rule("ReactiveInvocation")
+                .view(
+                        input(mario),
+                        expr(mario, person -> person.getName().equals("Mario")),
+                        set(parent).in(mario, m -> asList(new Person("Mimmo", m.getAge() + 35), new Person("Tina", 65)))
+                     )
+                .then(on(mario, parent)
+                              .execute((m, p) -> result.add(p)));
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.setInvokerOptions(parent, invokerOptions().reactive( p -> ((Person) p).getName() ));
+        kieBase.addRules(rule);
+
+        KieSession ksession = kieBase.newKieSession();
+        ksession.addEventListener(new DefaultAgendaEventListener() {
+            @Override
+            public void afterMatchFired(AfterMatchFiredEvent event) {
+                matches.add(event.getMatch());
+            }
+        });
+
+        Person person = new Person("Mario", 40);
+        FactHandle fh = ksession.insert(person);
+        ksession.fireAllRules();
+        assertEquals(2, result.size());
+
+        person.setAge(41);
+        ksession.update(fh, person);
+        ksession.fireAllRules();
+        assertEquals(4, result.size());
+
+        // the results with the same key modify the matches of the first invocation instead of replacing them
+        assertEquals(2, matches.size());
+        // the changed result is propagated with its new values, the unchanged one as the instance already known
+        Person mimmo = result.get(2).getName().equals("Mimmo") ? result.get(2) : result.get(3);
+        Person tina = result.get(2).getName().equals("Tina") ? result.get(2) : result.get(3);
+        assertEquals(76, mimmo.getAge());
+        assertTrue(tina == result.get(0) || tina == result.get(1));
+    }
+
+    @Test
+    public void testAsyncInvocation() throws InterruptedException {
         Result result = new Result();
 
+        Variable<Person> mark = variableOf( type( Person.class ) );
+        Variable<CompletableFuture> age = variableOf( type( CompletableFuture.class ) );
+
+        Rule rule = rule("AsyncInvocation")
+                .view(
+                        input(mark),
+                        expr(mark, person -> person.getName().equals("Mark")),
+                        set(age).invoking(mark, p -> CompletableFuture.supplyAsync( p::getAge ))
+                     )
+                .then(on(mark, age)
+                              .execute((m, a) -> result.value = m + " is " + a.join() + " years old"));
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.addRules(rule);
+
+        KieSession ksession = kieBase.newKieSession();
+
+        Person markFact = new Person("Mark", 37);
+        FactHandle markHandle = ksession.insert(markFact);
+        ksession.insert(new Person("Edson", 35));
+
+        // the invocation completes on another thread: the result is staged back and fired by a later firing
+        for (int i = 0; i < 100 && result.value == null; i++) {
+            ksession.fireAllRules();
+            Thread.sleep( 10 );
+        }
+        assertEquals("Mark is 37 years old", result.value);
+
+        // the fact is modified in place: the cached invocation is dropped and the function invoked again
+        result.value = null;
+        markFact.setAge(38);
+        ksession.update(markHandle, markFact);
+        for (int i = 0; i < 100 && result.value == null; i++) {
+            ksession.fireAllRules();
+            Thread.sleep( 10 );
+        }
+        assertEquals("Mark is 38 years old", result.value);
+    }
+
+    @Test
+    public void testAsyncInvocationFailureIsRethrown() {
+        Variable<Person> mark = variableOf( type( Person.class ) );
+        Variable<CompletableFuture> age = variableOf( type( CompletableFuture.class ) );
+
+        Rule rule = rule("FailingAsyncInvocation")
+                .view(
+                        input(mark),
+                        expr(mark, person -> person.getName().equals("Mark")),
+                        set(age).invoking(mark, p -> {
+                            CompletableFuture<Integer> failed = new CompletableFuture<Integer>();
+                            failed.completeExceptionally(new IllegalStateException("failed on " + p.getName()));
+                            return failed;
+                        })
+                     )
+                .then(on(mark, age)
+                              .execute((m, a) -> fail("A failed invocation must produce no result")));
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.addRules(rule);
+
+        KieSession ksession = kieBase.newKieSession();
+        ksession.insert(new Person("Mark", 37));
+
+        // the failure is reported by the firing executing the completion of the invocation
+        IllegalStateException failure = null;
+        for (int i = 0; i < 10 && failure == null; i++) {
+            try {
+                ksession.fireAllRules();
+            } catch (IllegalStateException e) {
+                failure = e;
+            }
+        }
+        assertNotNull(failure);
+        assertEquals("failed on Mark", failure.getMessage());
+        // a failure is reported only once
+        assertEquals(0, ksession.fireAllRules());
+    }
+
+    @Test
+    public void testCachedInvocation() {
+        List<String> result = new ArrayList<String>();
+        AtomicInteger invocations = new AtomicInteger();
+
         Variable<Person> mark = variableOf( type( Person.class ) );
         Variable<Integer> age = variableOf( type( Integer.class ) );
 
-        Rule rule = rule("SyncInvocation")
+        Rule rule = rule("CachedInvocation")
                 .view(
                         input(mark),
                         expr(mark, person -> person.getName().equals("Mark")),
-                        set(age).invoking(mark, FlowTest::findAge)
+                        set(age).invoking(mark, p -> {
+                            invocations.incrementAndGet();
+                            return p.getAge();
+                        })
                      )
                 .then(on(mark, age)
-                              .execute((m, a) -> result.value = m + " is " + a + " years old"));
+                              .execute((m, a) -> result.add(m + " is " + a + " years old")));
 
         CanonicalKieBase kieBase = new CanonicalKieBase();
+        InvokerOptions options = invokerOptions().cached( 100, args -> ((Person) args[0]).getNameWithAge() );
+        kieBase.setInvokerOptions(age, options);
         kieBase.addRules(rule);
 
         KieSession ksession = kieBase.newKieSession();
 
+        Person mark = new Person("Mark", 37);
+        FactHandle markHandle = ksession.insert(mark);
         ksession.insert(new Person("Mark", 37));
-        ksession.insert(new Person("Edson", 35));
         ksession.insert(new Person("Mario", 40));
 
         ksession.fireAllRules();
-        assertEquals("Mark is 37 years old", result.value);
+        assertEquals(asList("Mark is 37 years old", "Mark is 37 years old"), result);
+        assertEquals(1, invocations.get());
+        assertEquals(1, options.getCache().getHitCount());
+        assertEquals(1, options.getCache().getMissCount());
+
+        // the key is extracted when invoking, so the modified fact doesn't hit the result cached for its old values
+        result.clear();
+        mark.setAge(38);
+        ksession.update(markHandle, mark);
+        ksession.fireAllRules();
+        assertEquals(asList("Mark is 38 years old"), result);
+        assertEquals(2, invocations.get());
     }
 
     @Test
-    public void testInlineInvocationIterable() {
+    public void testBatchedInvocation() {
         List<String> result = new ArrayList<String>();
+        List<Integer> batchSizes = new ArrayList<Integer>();
 
-        Variable<Person> mario = variableOf( type( Person.class ) );
-        Variable<Person> parent = variableOf( type( Person.class ) );
+        Variable<Person> person = variableOf( type( Person.class ) );
+        Variable<Integer> age = variableOf( type( Integer.class ) );
 
-        Rule rule = rule("SyncInvocation")
+        Rule rule = rule("BatchedInvocation")
                 .view(
-                        input(mario),
-                        expr(mario, person -> person.getName().equals("Mario")),
-                        set(parent).in(mario, Person::getParents)
+                        input(person),
+                        set(age).invoking(person, Person::getAge)
                      )
-                .then(on(mario, parent)
-                              .execute((m, p) -> result.add(p + " is parent of " + m)));
+                .then(on(person, age)
+                              .execute((p, a) -> result.add(p.getName() + " is " + a + " years old")));
 
         CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.setInvokerOptions(age, invokerOptions().batched( argsList -> {
+            batchSizes.add( argsList.size() );
+            List<Integer> ages = new ArrayList<Integer>();
+            for (Object[] args : argsList) {
+                ages.add( ((Person) args[0]).getAge() );
+            }
+            return ages;
+        } ));
+        kieBase.addRules(rule);
+
+        KieSession ksession = kieBase.newKieSession();
+
+        ksession.insert(new Person("Mark", 37));
+        ksession.insert(new Person("Edson", 35));
+        ksession.insert(new Person("Mario", 40));
+
+        assertEquals(3, ksession.fireAllRules());
+        assertEquals(asList(3), batchSizes);
+        assertEquals(3, result.size());
+        assertTrue(result.contains("Mark is 37 years old"));
+        assertTrue(result.contains("Edson is 35 years old"));
+        assertTrue(result.contains("Mario is 40 years old"));
+    }
+
+    @Test
+    public void testComputedInvocation() {
+        List<String> result = new ArrayList<String>();
+        AtomicInteger invocations = new AtomicInteger();
+
+        Variable<Person> mark = variableOf( type( Person.class ) );
+        Variable<Integer> age = variableOf( type( Integer.class ) );
+
+        Rule rule = rule("ComputedInvocation")
+                .view(
+                        input(mark),
+                        expr(mark, person -> person.getName().equals("Mark")),
+                        set(age).invoking(mark, p -> {
+                            invocations.incrementAndGet();
+                            return p.getAge();
+                        })
+                     )
+                .then(on(mark, age)
+                              .execute((m, a) -> result.add(m + " is " + a + " years old")));
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.setInvokerOptions(age, invokerOptions().computed());
         kieBase.addRules(rule);
 
         KieSession ksession = kieBase.newKieSession();
 
         ksession.insert(new Person("Mark", 37));
         ksession.insert(new Person("Edson", 35));
-        ksession.insert(new Person("Mario", 40)
-                                .setParents(asList(new Person("Mimmo", 75),
-                                                   new Person("Tina", 65))));
 
+        // the binding is computed only when the consequence reads it
+        assertEquals(0, invocations.get());
         ksession.fireAllRules();
+        assertEquals(asList("Mark is 37 years old"), result);
+        assertEquals(1, invocations.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testComputedInvocationReadByConstraint() {
+        Variable<Person> mark = variableOf( type( Person.class ) );
+        Variable<Integer> age = variableOf( type( Integer.class ) );
+        Variable<Person> older = variableOf( type( Person.class ) );
+
+        Rule rule = rule("ComputedInvocationReadByConstraint")
+                .view(
+                        input(mark),
+                        set(age).invoking(mark, Person::getAge),
+                        input(older),
+                        expr(older, age, (o, a) -> o.getAge() > a)
+                     )
+                .then(on(mark, older)
+                              .execute((m, o) -> { }));
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.setInvokerOptions(age, invokerOptions().computed());
+        // a computed binding has no position in the tuple the constraint could read it from
+        kieBase.addRules(rule);
+    }
+
+    @Test
+    public void testBlockingInvocationAndConsequence() {
+        List<String> result = new CopyOnWriteArrayList<String>();
+        Set<String> threads = new CopyOnWriteArraySet<String>();
+        String firingThread = Thread.currentThread().getName();
+
+        Variable<Person> mark = variableOf( type( Person.class ) );
+        Variable<Integer> age = variableOf( type( Integer.class ) );
+
+        Rule rule = rule("BlockingInvocation")
+                .view(
+                        input(mark),
+                        expr(mark, person -> person.getName().equals("Mark")),
+                        set(age).invoking(mark, p -> {
+                            threads.add(Thread.currentThread().getName());
+                            return p.getAge();
+                        })
+                     )
+                .then(on(mark, age)
+                              .execute((m, a) -> {
+                                  threads.add(Thread.currentThread().getName());
+                                  result.add(m + " is " + a + " years old");
+                              }));
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.setInvokerOptions(age, invokerOptions().blocking());
+        kieBase.setRuleOptions("BlockingInvocation", ruleOptions().blocking());
+        kieBase.addRules(rule);
+
+        KieSession ksession = kieBase.newKieSession();
+
+        ksession.insert(new Person("Mark", 37));
+        ksession.insert(new Person("Edson", 35));
+
+        // the plain fireAllRules waits for the blocking work started by its firings
+        assertEquals(1, ksession.fireAllRules());
+        assertEquals(asList("Mark is 37 years old"), result);
+        assertEquals(0, BlockingWork.getInFlightCount(ksession));
+        assertFalse(threads.contains(firingThread));
+    }
+
+    @Test
+    public void testBlockingConsequenceFailureIsRethrown() {
+        Variable<Person> mark = variableOf( type( Person.class ) );
+
+        Rule rule = rule("FailingConsequence")
+                .view(
+                        input(mark),
+                        expr(mark, person -> person.getName().equals("Mark"))
+                     )
+                .then(on(mark)
+                              .execute(m -> {
+                                  throw new IllegalStateException("failed on " + m.getName());
+                              }));
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.setRuleOptions("FailingConsequence", ruleOptions().blocking());
+        kieBase.addRules(rule);
+
+        KieSession ksession = kieBase.newKieSession();
+        ksession.insert(new Person("Mark", 37));
+
+        try {
+            ksession.fireAllRules();
+            fail("The failure of a blocking consequence must be rethrown by fireAllRules");
+        } catch (IllegalStateException e) {
+            assertEquals("failed on Mark", e.getMessage());
+        }
+        assertEquals(0, BlockingWork.getInFlightCount(ksession));
+        // a failure is reported only once
+        assertEquals(0, ksession.fireAllRules());
+    }
+
+    @Test
+    public void testDeferredSideEffects() {
+        AtomicInteger inserted = new AtomicInteger();
+        AtomicInteger updated = new AtomicInteger();
+        AtomicInteger deleted = new AtomicInteger();
+
+        Variable<Person> young = variableOf( type( Person.class ) );
+
+        Rule rule = rule("DeferredSideEffects")
+                .view(
+                        input(young),
+                        expr(young, person -> person.getAge() < 40)
+                     )
+                .then(on(young)
+                              .execute((drools, p) -> {
+                                  p.setAge(40);
+                                  drools.update(p);
+                                  drools.update(p);
+                                  Result temp = new Result();
+                                  drools.insert(temp);
+                                  drools.delete(temp);
+                              }));
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.setRuleOptions("DeferredSideEffects", ruleOptions().deferredSideEffects());
+        kieBase.addRules(rule);
+
+        KieSession ksession = kieBase.newKieSession();
+
+        ksession.insert(new Person("Mark", 37));
+        ksession.insert(new Person("Mario", 40));
+
+        ksession.addEventListener(new DefaultRuleRuntimeEventListener() {
+            @Override
+            public void objectInserted(ObjectInsertedEvent event) {
+                inserted.incrementAndGet();
+            }
+
+            @Override
+            public void objectUpdated(ObjectUpdatedEvent event) {
+                updated.incrementAndGet();
+            }
+
+            @Override
+            public void objectDeleted(ObjectDeletedEvent event) {
+                deleted.incrementAndGet();
+            }
+        });
+
+        assertEquals(1, ksession.fireAllRules());
+        // the two updates are coalesced, and the fact inserted and then deleted never reaches the session
+        assertEquals(1, updated.get());
+        assertEquals(0, inserted.get());
+        assertEquals(0, deleted.get());
+    }
+
+    @Test
+    public void testDeferredDeleteAndReinsert() {
+        Variable<Person> young = variableOf( type( Person.class ) );
+
+        Rule rule = rule("DeferredDeleteAndReinsert")
+                .view(
+                        input(young),
+                        expr(young, person -> person.getAge() < 40)
+                     )
+                .then(on(young)
+                              .execute((drools, p) -> {
+                                  drools.delete(p);
+                                  p.setAge(40);
+                                  drools.insert(p);
+                              }));
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.setRuleOptions("DeferredDeleteAndReinsert", ruleOptions().deferredSideEffects());
+        kieBase.addRules(rule);
+
+        KieSession ksession = kieBase.newKieSession();
+
+        ksession.insert(new Person("Mark", 37));
+
+        assertEquals(1, ksession.fireAllRules());
+        // the side effects are applied in the order of the consequence, so the fact is back in the session
+        assertEquals(1, ksession.getObjects().size());
+        assertEquals(40, ((Person) ksession.getObjects().iterator().next()).getAge());
+    }
+
+    @Test
+    public void testParallelConsequence() {
+        List<String> result = new CopyOnWriteArrayList<String>();
+        Set<String> threads = new CopyOnWriteArraySet<String>();
+        String firingThread = Thread.currentThread().getName();
+
+        Variable<Person> adult = variableOf( type( Person.class ) );
+
+        Rule rule = rule("ParallelConsequence")
+                .view(
+                        input(adult),
+                        expr(adult, person -> person.getAge() >= 18)
+                     )
+                .then(on(adult)
+                              .execute(p -> {
+                                  threads.add(Thread.currentThread().getName());
+                                  result.add(p.getName());
+                              }));
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.setRuleOptions("ParallelConsequence", ruleOptions().parallel());
+        kieBase.addRules(rule);
+
+        KieSession ksession = kieBase.newKieSession();
+
+        ksession.insert(new Person("Mark", 37));
+        ksession.insert(new Person("Edson", 35));
+        ksession.insert(new Person("Sofia", 5));
+
+        assertEquals(2, ksession.fireAllRules());
         assertEquals(2, result.size());
-        assertTrue(result.contains("Mimmo is parent of Mario"));
-        assertTrue(result.contains("Tina is parent of Mario"));
+        assertTrue(result.contains("Mark"));
+        assertTrue(result.contains("Edson"));
+        assertFalse(threads.contains(firingThread));
+    }
+
+    @Test
+    public void testParallelConsequenceFailureIsRethrown() {
+        List<String> result = new CopyOnWriteArrayList<String>();
+
+        Variable<Person> adult = variableOf( type( Person.class ) );
+
+        Rule rule = rule("FailingParallelConsequence")
+                .view(
+                        input(adult),
+                        expr(adult, person -> person.getAge() >= 18)
+                     )
+                .then(on(adult)
+                              .execute(p -> {
+                                  if (p.getName().equals("Edson")) {
+                                      throw new IllegalStateException("failed on " + p.getName());
+                                  }
+                                  result.add(p.getName());
+                              }));
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.setRuleOptions("FailingParallelConsequence", ruleOptions().parallel());
+        kieBase.addRules(rule);
+
+        KieSession ksession = kieBase.newKieSession();
+
+        ksession.insert(new Person("Mark", 37));
+        ksession.insert(new Person("Edson", 35));
+
+        try {
+            ksession.fireAllRules();
+            fail("The failure of a parallel consequence must be rethrown by fireAllRules");
+        } catch (IllegalStateException e) {
+            assertEquals("failed on Edson", e.getMessage());
+        }
+        // fireAllRules returned only once all the firings were done
+        assertEquals(asList("Mark"), result);
+        assertEquals(0, BlockingWork.getInFlightCount(ksession));
+    }
+
+    @Test
+    public void testActivationCoalescing() {
+        List<Integer> result = new ArrayList<Integer>();
+
+        Variable<Person> reading = variableOf( type( Person.class ) );
+
+        Rule rule = rule("ActivationCoalescing")
+                .view(
+                        input(reading),
+                        expr(reading, person -> person.getAge() > 0)
+                     )
+                .then(on(reading)
+                              .execute(p -> result.add(p.getAge())));
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.setRuleOptions("ActivationCoalescing", ruleOptions().coalesceBy( facts -> ((Person) facts[0]).getName() ));
+        kieBase.addRules(rule);
+
+        KieSession ksession = kieBase.newKieSession();
+
+        ksession.insert(new Person("Mark", 37));
+        ksession.insert(new Person("Mark", 38));
+        ksession.insert(new Person("Mark", 39));
+        ksession.insert(new Person("Edson", 35));
+
+        // the superseded activations are not counted as fired
+        assertEquals(2, ksession.fireAllRules());
+        // only the latest pending activation for each name is executed
+        assertEquals(2, result.size());
+        assertTrue(result.contains(39));
+        assertTrue(result.contains(35));
+    }
+
+    @Test
+    public void testActivationCoalescingAfterCancelAndAdd() {
+        List<String> result = new ArrayList<String>();
+        Person tina = new Person("Tina", 60);
+
+        Variable<Person> reading = variableOf( type( Person.class ) );
+
+        // the first firing cancels a pending activation and adds another one, leaving the pending count unchanged
+        Rule rule = rule("CoalescingAfterCancelAndAdd")
+                .view(
+                        input(reading),
+                        expr(reading, person -> person.getAge() > 0)
+                     )
+                .then(on(reading)
+                              .execute((drools, p) -> {
+                                  if (p.getName().equals("Mark")) {
+                                      drools.delete(tina);
+                                      drools.insert(new Person("Edson", 36));
+                                  }
+                                  result.add(p.getName() + p.getAge());
+                              }));
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.setRuleOptions("CoalescingAfterCancelAndAdd", ruleOptions().coalesceBy( facts -> ((Person) facts[0]).getName() ));
+        kieBase.addRules(rule);
+
+        KieSession ksession = kieBase.newKieSession();
+
+        ksession.insert(new Person("Mark", 37));
+        ksession.insert(new Person("Edson", 35));
+        ksession.insert(tina);
+
+        assertEquals(2, ksession.fireAllRules());
+        // the activation added by the first firing supersedes the one already pending with the same name
+        assertEquals(asList("Mark37", "Edson36"), result);
     }
 
     private static class Result {
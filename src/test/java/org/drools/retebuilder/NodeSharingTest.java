@@ -1,5 +1,8 @@
 package org.drools.retebuilder;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.drools.core.reteoo.AlphaNode;
 import org.drools.core.reteoo.EntryPointNode;
 import org.drools.core.reteoo.ObjectTypeNode;
@@ -7,9 +10,12 @@ import org.drools.core.reteoo.Sink;
 import org.drools.model.Rule;
 import org.drools.model.Variable;
 import org.junit.Test;
+import org.kie.api.runtime.KieSession;
 
+import static java.util.Arrays.asList;
 import static org.drools.model.DSL.*;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class NodeSharingTest {
 
@@ -97,4 +103,88 @@ public class NodeSharingTest {
 
         assertEquals(1, alphaCounter);
     }
+
+    @Test
+    public void testOrBranchesSharing() {
+        Variable<Person> markV = any(Person.class);
+        Variable<Person> otherV = any(Person.class);
+        List<String> result = new ArrayList<String>();
+
+        Rule rule = rule("or")
+                .view(
+                        expr(markV, mark -> mark.getName().equals("Mark")),
+                        or(expr(otherV, markV, (other, mark) -> other.getAge() > mark.getAge()),
+                           expr(otherV, other -> other.getName().equals("Edson")))
+                     )
+                .then(
+                        on(otherV, markV)
+                            .execute((p1, p2) -> result.add(p1.getName() + "-" + p2.getName()))
+                     );
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.addRules(rule);
+
+        // the two branches share the alpha node of their common prefix
+        EntryPointNode epNode = kieBase.getRete().getEntryPointNodes().values().iterator().next();
+        ObjectTypeNode otn = epNode.getObjectTypeNodes().values().iterator().next();
+        int alphaCounter = 0;
+        for (Sink sink : otn.getObjectSinkPropagator().getSinks()) {
+            if (sink instanceof AlphaNode) {
+                alphaCounter++;
+            }
+        }
+        assertEquals(2, alphaCounter);
+
+        // and build no more nodes than the same branches written as two rules
+        Rule branch1 = rule("branch1")
+                .view(
+                        expr(markV, mark -> mark.getName().equals("Mark")),
+                        expr(otherV, markV, (other, mark) -> other.getAge() > mark.getAge())
+                     )
+                .then(
+                        on(otherV, markV)
+                            .execute((p1, p2) -> result.add(p1.getName() + "-" + p2.getName()))
+                     );
+        Rule branch2 = rule("branch2")
+                .view(
+                        expr(markV, mark -> mark.getName().equals("Mark")),
+                        expr(otherV, other -> other.getName().equals("Edson"))
+                     )
+                .then(
+                        on(otherV, markV)
+                            .execute((p1, p2) -> result.add(p1.getName() + "-" + p2.getName()))
+                     );
+        CanonicalKieBase twoRulesKieBase = new CanonicalKieBase();
+        twoRulesKieBase.addRules(branch1, branch2);
+        assertEquals(twoRulesKieBase.getNodeCount(), kieBase.getNodeCount());
+
+        KieSession ksession = kieBase.newKieSession();
+        ksession.insert(new Person("Mark", 37));
+        ksession.insert(new Person("Edson", 35));
+        ksession.insert(new Person("Mario", 40));
+        ksession.fireAllRules();
+
+        assertEquals(2, result.size());
+        assertTrue(result.containsAll(asList("Mario-Mark", "Edson-Mark")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOrBranchNotBindingConsequenceVariable() {
+        Variable<Person> markV = any(Person.class);
+        Variable<Person> otherV = any(Person.class);
+
+        Rule rule = rule("orUnbound")
+                .view(
+                        or(expr(otherV, markV, (other, mark) -> other.getAge() > mark.getAge()),
+                           expr(otherV, other -> other.getName().equals("Edson")))
+                     )
+                .then(
+                        on(otherV, markV)
+                            .execute((p1, p2) -> System.out.println(p1.getName() + "-" + p2.getName()))
+                     );
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        // the second branch does not bind the mark the consequence reads
+        kieBase.addRules(rule);
+    }
 }
@@ -0,0 +1,178 @@
+package org.drools.retebuilder;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import org.drools.model.Rule;
+import org.drools.model.Variable;
+import org.drools.model.datasources.DataStore;
+import org.drools.model.datasources.DataStream;
+import org.drools.retebuilder.datasources.LiveDataStore;
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.drools.model.DSL.*;
+import static org.drools.retebuilder.datasources.LiveDataStore.liveStoreOf;
+import static org.drools.retebuilder.datasources.StreamingDataStore.streamOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PartitionedKieSessionTest {
+
+    @Test
+    public void testPartitionedDataStore() {
+        List<String> result = new CopyOnWriteArrayList<String>();
+
+        Variable<Person> person = any( Person.class );
+
+        Rule rule = rule("R")
+                .view(
+                        input(person, "persons"),
+                        expr(person, p -> p.getAge() > 36)
+                     )
+                .then(on(person)
+                              .execute(p -> result.add( p.getName() + "@" + Thread.currentThread().getName() )));
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.addRules(rule);
+
+        PartitionedKieSession session = new PartitionedKieSession( kieBase, 2, p -> ((Person) p).getTown() );
+
+        DataStore persons = storeOf( new Person( "Mark", 37, "London" ),
+                                     new Person( "Edson", 35, "Toronto" ),
+                                     new Person( "Mario", 40, "Milano" ) );
+        session.bindDataSource( "persons", persons );
+
+        assertEquals( 2, session.fireAllRules() );
+        assertEquals( 2, result.size() );
+        assertTrue( result.contains( "Mark@kie-partition-" + session.partitionOf( new Person( "Mark", 37, "London" ) ) ) );
+        assertTrue( result.contains( "Mario@kie-partition-" + session.partitionOf( new Person( "Mario", 40, "Milano" ) ) ) );
+
+        session.dispose();
+    }
+
+    @Test
+    public void testPartitionedDataStream() {
+        List<String> result = new CopyOnWriteArrayList<String>();
+
+        Variable<Person> person = any( Person.class );
+
+        Rule rule = rule("R")
+                .view(
+                        subscribe(person, "persons"),
+                        expr(person, p -> p.getAge() > 36)
+                     )
+                .then(on(person)
+                              .execute(p -> result.add( p.getName() )));
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.addRules(rule);
+
+        PartitionedKieSession session = new PartitionedKieSession( kieBase, 4, p -> ((Person) p).getName() );
+
+        DataStream persons = newDataStream();
+        session.bindDataSource( "persons", persons );
+
+        persons.send( new Person( "Mark", 37 ) );
+        persons.send( new Person( "Edson", 35 ) );
+        persons.send( new Person( "Mario", 40 ) );
+
+        assertEquals( 2, session.fireAllRules() );
+        assertTrue( result.contains( "Mark" ) );
+        assertTrue( result.contains( "Mario" ) );
+
+        session.dispose();
+    }
+
+    @Test
+    public void testPartitionedLiveDataStore() {
+        List<String> result = new CopyOnWriteArrayList<String>();
+
+        Variable<Person> person = any( Person.class );
+
+        Rule rule = rule("R")
+                .view(
+                        input(person, "persons"),
+                        expr(person, p -> p.getAge() > 36)
+                     )
+                .then(on(person)
+                              .execute(p -> result.add( p.getName() )));
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.addRules(rule);
+
+        PartitionedKieSession session = new PartitionedKieSession( kieBase, 4, p -> ((Person) p).getName() );
+
+        Person mark = new Person( "Mark", 37 );
+        Person edson = new Person( "Edson", 35 );
+        LiveDataStore<Person> persons = liveStoreOf( mark, edson );
+        session.bindDataSource( "persons", persons );
+
+        assertEquals( 1, session.fireAllRules() );
+        assertEquals( asList( "Mark" ), result );
+
+        result.clear();
+        persons.add( new Person( "Mario", 40 ) );
+        // changing the key may move the person to another partition
+        edson.setName( "Edson Tirelli" );
+        edson.setAge( 38 );
+        persons.update( edson );
+        persons.remove( mark );
+
+        assertEquals( 2, session.fireAllRules() );
+        assertTrue( result.containsAll( asList( "Mario", "Edson Tirelli" ) ) );
+
+        int stored = 0;
+        for (int i = 0; i < session.getPartitionsNr(); i++) {
+            stored += session.getKieSession( i ).getEntryPoint( "persons" ).getObjects().size();
+        }
+        assertEquals( 2, stored );
+
+        session.dispose();
+    }
+
+    @Test
+    public void testPartitionedStreamingDataStore() {
+        List<String> result = new CopyOnWriteArrayList<String>();
+
+        Variable<Person> person = any( Person.class );
+
+        Rule rule = rule("R")
+                .view(
+                        input(person, "persons"),
+                        expr(person, p -> p.getAge() > 36)
+                     )
+                .then(on(person)
+                              .execute(p -> result.add( p.getName() )));
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.addRules(rule);
+
+        PartitionedKieSession session = new PartitionedKieSession( kieBase, 2, p -> ((Person) p).getTown() );
+
+        session.bindDataSource( "persons", streamOf( Stream.of( new Person( "Mark", 37, "London" ),
+                                                                new Person( "Edson", 35, "Toronto" ),
+                                                                new Person( "Mario", 40, "Milano" ) ) ) );
+
+        assertEquals( 2, session.fireAllRules() );
+        assertTrue( result.containsAll( asList( "Mark", "Mario" ) ) );
+
+        session.dispose();
+    }
+
+    @Test
+    public void testUnknownDataSourceIsReportedToTheCaller() {
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        PartitionedKieSession session = new PartitionedKieSession( kieBase, 2, p -> ((Person) p).getTown() );
+        try {
+            session.insert( "unknown", new Person( "Mark", 37, "London" ) );
+            fail( "An insert into an unknown data source must fail" );
+        } catch (RuntimeException e) {
+            assertEquals( "Unknown data source: unknown", e.getMessage() );
+        } finally {
+            session.dispose();
+        }
+    }
+}
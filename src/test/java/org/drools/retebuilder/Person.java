@@ -27,6 +27,10 @@ public class Person {
         return town;
     }
 
+    public void setTown(String town) {
+        this.town = town;
+    }
+
     public String getName() {
         return name;
     }
@@ -1,5 +1,15 @@
 package org.drools.retebuilder.fireandalarm;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.drools.core.base.ClassObjectType;
+import org.drools.core.reteoo.EntryPointNode;
+import org.drools.core.reteoo.ExistsNode;
+import org.drools.core.reteoo.NotNode;
+import org.drools.core.reteoo.ObjectTypeNode;
+import org.drools.core.rule.EntryPointId;
+import org.drools.model.Index.ConstraintType;
 import org.drools.model.Rule;
 import org.drools.model.Variable;
 import org.drools.retebuilder.CanonicalKieBase;
@@ -11,7 +21,9 @@ import org.junit.Test;
 import org.kie.api.runtime.KieSession;
 import org.kie.api.runtime.rule.FactHandle;
 
+import static java.util.Arrays.asList;
 import static org.drools.model.DSL.*;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 public class FireAndAlarmTest {
@@ -110,4 +122,216 @@ public class FireAndAlarmTest {
         ksession.delete(fireFact1);
         ksession.fireAllRules();
     }
+
+    @Test
+    public void testIndexedNot() {
+        Variable<Fire> fire = any(Fire.class);
+        Variable<Sprinkler> sprinkler = any(Sprinkler.class);
+
+        Rule rule = rule("When the fire is gone turn off the sprinkler")
+                .view(
+                        input(sprinkler),
+                        expr(sprinkler, Sprinkler::isOn),
+                        input(fire),
+                        not(expr(fire, sprinkler, (f, s) -> f.getRoom().equals(s.getRoom()))
+                                .indexedBy(Room.class, ConstraintType.EQUAL, Fire::getRoom, Sprinkler::getRoom))
+                     )
+                .then(
+                        on(sprinkler)
+                            .execute(s -> s.setOn(false))
+                            .update(sprinkler, "on")
+                     );
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.addRules(rule);
+
+        EntryPointNode epNode = kieBase.getRete().getEntryPointNode(EntryPointId.DEFAULT);
+        ObjectTypeNode fireOtn = epNode.getObjectTypeNodes().get(new ClassObjectType(Fire.class));
+        NotNode notNode = (NotNode) fireOtn.getObjectSinkPropagator().getSinks()[0];
+        assertTrue(notNode.getRawConstraints().isIndexed());
+
+        KieSession ksession = kieBase.newKieSession();
+
+        int roomsNumber = 1000;
+        Sprinkler[] sprinklers = new Sprinkler[roomsNumber];
+        FactHandle[] fires = new FactHandle[roomsNumber];
+        for (int i = 0; i < roomsNumber; i++) {
+            Room room = new Room("Room " + i);
+            sprinklers[i] = new Sprinkler(room);
+            sprinklers[i].setOn(true);
+            ksession.insert(sprinklers[i]);
+            fires[i] = ksession.insert(new Fire(room));
+        }
+        ksession.fireAllRules();
+        for (Sprinkler s : sprinklers) {
+            assertTrue(s.isOn());
+        }
+
+        // the retracted fire only unblocks the sprinkler of its own room
+        ksession.delete(fires[42]);
+        ksession.fireAllRules();
+        for (int i = 0; i < roomsNumber; i++) {
+            assertEquals(i != 42, sprinklers[i].isOn());
+        }
+    }
+
+    @Test
+    public void testIndexedNotAfterJoin() {
+        Variable<Room> room = any(Room.class);
+        Variable<Fire> fire = any(Fire.class);
+        Variable<Sprinkler> sprinkler = any(Sprinkler.class);
+
+        // the sprinkler is the second fact of the tuple, so the index has to read it from its position
+        Rule rule = rule("When the fire is gone turn off the sprinkler of the room")
+                .view(
+                        input(room),
+                        input(sprinkler),
+                        expr(sprinkler, room, (s, r) -> s.getRoom().equals(r)),
+                        expr(sprinkler, Sprinkler::isOn),
+                        input(fire),
+                        not(expr(fire, sprinkler, (f, s) -> f.getRoom().equals(s.getRoom()))
+                                .indexedBy(Room.class, ConstraintType.EQUAL, Fire::getRoom, Sprinkler::getRoom))
+                     )
+                .then(
+                        on(sprinkler)
+                            .execute(s -> s.setOn(false))
+                            .update(sprinkler, "on")
+                     );
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.addRules(rule);
+
+        EntryPointNode epNode = kieBase.getRete().getEntryPointNode(EntryPointId.DEFAULT);
+        ObjectTypeNode fireOtn = epNode.getObjectTypeNodes().get(new ClassObjectType(Fire.class));
+        NotNode notNode = (NotNode) fireOtn.getObjectSinkPropagator().getSinks()[0];
+        assertTrue(notNode.getRawConstraints().isIndexed());
+
+        KieSession ksession = kieBase.newKieSession();
+
+        int roomsNumber = 10;
+        Sprinkler[] sprinklers = new Sprinkler[roomsNumber];
+        FactHandle[] fires = new FactHandle[roomsNumber];
+        for (int i = 0; i < roomsNumber; i++) {
+            Room r = new Room("Room " + i);
+            ksession.insert(r);
+            sprinklers[i] = new Sprinkler(r);
+            sprinklers[i].setOn(true);
+            ksession.insert(sprinklers[i]);
+            fires[i] = ksession.insert(new Fire(r));
+        }
+        ksession.fireAllRules();
+        for (Sprinkler s : sprinklers) {
+            assertTrue(s.isOn());
+        }
+
+        ksession.delete(fires[7]);
+        ksession.fireAllRules();
+        for (int i = 0; i < roomsNumber; i++) {
+            assertEquals(i != 7, sprinklers[i].isOn());
+        }
+    }
+
+    @Test
+    public void testIndexedExistsAfterJoin() {
+        List<String> result = new ArrayList<String>();
+
+        Variable<Room> room = any(Room.class);
+        Variable<Fire> fire = any(Fire.class);
+        Variable<Sprinkler> sprinkler = any(Sprinkler.class);
+
+        Rule rule = rule("Report the rooms on fire having a sprinkler")
+                .view(
+                        input(sprinkler),
+                        input(room),
+                        expr(room, sprinkler, (r, s) -> r.equals(s.getRoom())),
+                        input(fire),
+                        exists(expr(fire, room, (f, r) -> f.getRoom().equals(r))
+                                .indexedBy(Room.class, ConstraintType.EQUAL, Fire::getRoom, r -> r))
+                     )
+                .then(
+                        on(room).execute(r -> result.add(r.getName()))
+                     );
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.addRules(rule);
+
+        EntryPointNode epNode = kieBase.getRete().getEntryPointNode(EntryPointId.DEFAULT);
+        ObjectTypeNode fireOtn = epNode.getObjectTypeNodes().get(new ClassObjectType(Fire.class));
+        ExistsNode existsNode = (ExistsNode) fireOtn.getObjectSinkPropagator().getSinks()[0];
+        assertTrue(existsNode.getRawConstraints().isIndexed());
+
+        KieSession ksession = kieBase.newKieSession();
+
+        int roomsNumber = 10;
+        Room[] rooms = new Room[roomsNumber];
+        for (int i = 0; i < roomsNumber; i++) {
+            rooms[i] = new Room("Room " + i);
+            ksession.insert(rooms[i]);
+            ksession.insert(new Sprinkler(rooms[i]));
+        }
+        ksession.fireAllRules();
+        assertTrue(result.isEmpty());
+
+        // the room is the second fact of the tuple, and only the rooms on fire match
+        FactHandle fire3 = ksession.insert(new Fire(rooms[3]));
+        ksession.insert(new Fire(rooms[5]));
+        ksession.fireAllRules();
+        assertEquals(2, result.size());
+        assertTrue(result.containsAll(asList("Room 3", "Room 5")));
+
+        // a second fire in a room already on fire doesn't change the match
+        result.clear();
+        ksession.insert(new Fire(rooms[3]));
+        ksession.delete(fire3);
+        ksession.fireAllRules();
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    public void testIndexedExistsAfterLeadingNot() {
+        List<String> result = new ArrayList<String>();
+
+        Variable<Alarm> alarm = any(Alarm.class);
+        Variable<Room> room = any(Room.class);
+        Variable<Fire> fire = any(Fire.class);
+        Variable<Sprinkler> sprinkler = any(Sprinkler.class);
+
+        // the leading not puts the initial fact and the not node before the joined facts of the tuple
+        Rule rule = rule("Report the rooms on fire having a sprinkler before the alarm is raised")
+                .view(
+                        input(alarm),
+                        not(alarm),
+                        input(sprinkler),
+                        input(room),
+                        expr(room, sprinkler, (r, s) -> r.equals(s.getRoom())),
+                        input(fire),
+                        exists(expr(fire, room, (f, r) -> f.getRoom().equals(r))
+                                .indexedBy(Room.class, ConstraintType.EQUAL, Fire::getRoom, r -> r))
+                     )
+                .then(
+                        on(room).execute(r -> result.add(r.getName()))
+                     );
+
+        CanonicalKieBase kieBase = new CanonicalKieBase();
+        kieBase.addRules(rule);
+
+        KieSession ksession = kieBase.newKieSession();
+
+        int roomsNumber = 10;
+        Room[] rooms = new Room[roomsNumber];
+        for (int i = 0; i < roomsNumber; i++) {
+            rooms[i] = new Room("Room " + i);
+            ksession.insert(rooms[i]);
+            ksession.insert(new Sprinkler(rooms[i]));
+        }
+        ksession.insert(new Fire(rooms[4]));
+        ksession.fireAllRules();
+        assertEquals(asList("Room 4"), result);
+
+        result.clear();
+        ksession.insert(new Alarm());
+        ksession.insert(new Fire(rooms[6]));
+        ksession.fireAllRules();
+        assertTrue(result.isEmpty());
+    }
 }